@@ -0,0 +1,204 @@
+/**
+ * Analyzer.java
+ * CIS 22C, Final Project
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * Describes how lyrics and queries are turned into keywords, as a chain of
+ * optional steps applied to each word: lowercase, strip punctuation, drop stop
+ * words, then stem. The stop words can be loaded from a file, and a
+ * SearchEngine can be reindexed with a different Analyzer while it runs. An
+ * Analyzer never changes, so one can be shared between threads; the
+ * Tokenizers it makes cannot.
+ */
+public class Analyzer {
+	/**
+	 * An empty stop word list, for analyzing a word that must be kept
+	 */
+	private static final CharTrie NO_STOP_WORDS = new CharTrie(new ArrayList<String>());
+	/**
+	 * Whether ASCII letters are lowercased
+	 */
+	private final boolean lowercase;
+	/**
+	 * Whether characters other than letters, digits and whitespace are dropped
+	 */
+	private final boolean stripPunctuation;
+	/**
+	 * The words to skip, checked after lowercasing and stripping
+	 */
+	private final CharTrie stopWords;
+	/**
+	 * Whether plural endings are removed from the words kept
+	 */
+	private final boolean stem;
+
+	/* Constructors */
+	/**
+	 * Constructor for the usual chain: lowercase, strip punctuation and drop the
+	 * given stop words, with no stemming
+	 * 
+	 * @param stopWords the words to skip
+	 */
+	public Analyzer(CharTrie stopWords) {
+		this(true, true, stopWords, false);
+	}
+
+	/**
+	 * Constructor that picks each step of the chain
+	 * 
+	 * @param lowercase        whether to lowercase ASCII letters
+	 * @param stripPunctuation whether to drop everything but letters, digits and
+	 *                         whitespace
+	 * @param stopWords        the words to skip
+	 * @param stem             whether to remove plural endings
+	 */
+	public Analyzer(boolean lowercase, boolean stripPunctuation, CharTrie stopWords, boolean stem) {
+		this.lowercase = lowercase;
+		this.stripPunctuation = stripPunctuation;
+		this.stopWords = stopWords;
+		this.stem = stem;
+	}
+
+	/**
+	 * Reads a stop word list, one or more words per line separated by whitespace;
+	 * lines starting with # are comments
+	 * 
+	 * @param fileName the file to read
+	 * @return the stop words as a set
+	 * @throws IOException if the file can't be read
+	 */
+	public static CharTrie loadStopWords(String fileName) throws IOException {
+		ArrayList<String> words = new ArrayList<>();
+		try (Scanner fileScanner = new Scanner(new File(fileName))) {
+			while (fileScanner.hasNextLine()) {
+				String line = fileScanner.nextLine().trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				for (String word : line.split("\\s+")) {
+					words.add(word);
+				}
+			}
+		} catch (IOException e) {
+			throw new IOException("loadStopWords(): Error reading stop word file: " + fileName, e);
+		}
+		return new CharTrie(words);
+	}
+
+	/* Accessors */
+	/**
+	 * Returns whether ASCII letters are lowercased
+	 * 
+	 * @return if the chain lowercases
+	 */
+	public boolean isLowercase() {
+		return lowercase;
+	}
+
+	/**
+	 * Returns whether punctuation is dropped
+	 * 
+	 * @return if the chain strips punctuation
+	 */
+	public boolean isStripPunctuation() {
+		return stripPunctuation;
+	}
+
+	/**
+	 * Returns the stop words
+	 * 
+	 * @return the words to skip
+	 */
+	public CharTrie getStopWords() {
+		return stopWords;
+	}
+
+	/**
+	 * Returns whether plural endings are removed
+	 * 
+	 * @return if the chain stems
+	 */
+	public boolean isStem() {
+		return stem;
+	}
+
+	/* Additional Methods */
+	/**
+	 * Returns a new Tokenizer that applies this chain; each thread needs its own
+	 * 
+	 * @return a new Tokenizer
+	 */
+	public Tokenizer newTokenizer() {
+		return new Tokenizer(this);
+	}
+
+	/**
+	 * Returns the keywords of a text separated by single spaces
+	 * 
+	 * @param text the text to filter
+	 * @return the keywords
+	 */
+	public String filter(String text) {
+		return newTokenizer().filter(text);
+	}
+
+	/**
+	 * Applies the chain to a word typed by the user, e.g. a prefix to complete,
+	 * without dropping it as a stop word, so it can be compared with the indexed
+	 * words
+	 * 
+	 * @param word the word to analyze
+	 * @return the word as it would be indexed, empty if it has no letters or
+	 *         digits left
+	 */
+	public String normalize(String word) {
+		return new Analyzer(lowercase, stripPunctuation, NO_STOP_WORDS, stem).filter(word);
+	}
+
+	/**
+	 * Removes a plural ending from a word in place, using Harman's S-stemmer:
+	 * "-ies" becomes "-y" (not after e or a), "-es" becomes "-e" (not after a, e
+	 * or o), and a final "-s" is dropped (not after u or s). Only the first rule
+	 * that applies is used
+	 * 
+	 * @param chars  the buffer holding the word, starting at index 0
+	 * @param length the length of the word
+	 * @return the new length of the word
+	 */
+	public static int stem(char[] chars, int length) {
+		if (length > 3 && endsWith(chars, length, "ies") && chars[length - 4] != 'e' && chars[length - 4] != 'a') {
+			chars[length - 3] = 'y';
+			return length - 2;
+		}
+		if (length > 2 && endsWith(chars, length, "es") && chars[length - 3] != 'a' && chars[length - 3] != 'e'
+				&& chars[length - 3] != 'o') {
+			return length - 1;
+		}
+		if (length > 1 && chars[length - 1] == 's' && chars[length - 2] != 'u' && chars[length - 2] != 's') {
+			return length - 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Checks if a word ends with a suffix
+	 * 
+	 * @param chars  the buffer holding the word, starting at index 0
+	 * @param length the length of the word
+	 * @param suffix the ending to check for
+	 * @return if the word ends with suffix
+	 */
+	private static boolean endsWith(char[] chars, int length, String suffix) {
+		for (int i = 0; i < suffix.length(); i++) {
+			if (chars[length - suffix.length() + i] != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -3,14 +3,19 @@
  * @author Stephen Lin
  * CIS 22C, Final Project
  */
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
- * Generic BST class implementation
+ * Generic BST class implementation. A BST created in balanced mode is kept as
+ * an AVL tree: every insert and remove rotates the nodes on the changed path
+ * so the heights of any node's subtrees differ by at most one.
  * @param <T> the type of elements stored in the BST
  */
-public class BST<T> {
+public class BST<T> implements Iterable<T> {
 	/**
 	 * Node class implementation
 	 */
@@ -27,6 +32,14 @@ public class BST<T> {
 		 * The right connecting node
 		 */
 		private Node right;
+		/**
+		 * The height of the subtree rooted at this node; 0 for a leaf
+		 */
+		private int height;
+		/**
+		 * The number of nodes in the subtree rooted at this node
+		 */
+		private int size;
 
 		/**
 		 * Constructs a new node
@@ -36,6 +49,87 @@ public class BST<T> {
 			this.data = data;
 			left = null;
 			right = null;
+			height = 0;
+			size = 1;
+		}
+	}
+
+	/**
+	 * Lazy inOrder iterator; holds only the path of nodes still to visit, so it
+	 * can stop early without touching the rest of the tree
+	 */
+	private class InOrderIterator implements Iterator<T> {
+		/**
+		 * The nodes whose data and right subtree are still to be visited
+		 */
+		private ArrayDeque<Node> stack;
+
+		/**
+		 * Constructs an iterator positioned at the smallest data
+		 * 
+		 * @param node the root of the tree to iterate
+		 */
+		public InOrderIterator(Node node) {
+			stack = new ArrayDeque<>();
+			pushLeft(node);
+		}
+
+		/**
+		 * Constructs an iterator positioned at the smallest data that is not less
+		 * than from; only the nodes on the search path for from are pushed
+		 * 
+		 * @param node the root of the tree to iterate
+		 * @param from the lower bound (inclusive)
+		 * @param cmp  ordering of the tree
+		 */
+		public InOrderIterator(Node node, T from, Comparator<T> cmp) {
+			stack = new ArrayDeque<>();
+			while (node != null) {
+				if (cmp.compare(node.data, from) >= 0) {
+					stack.push(node);
+					node = node.left;
+				} else {
+					node = node.right;
+				}
+			}
+		}
+
+		/**
+		 * Pushes a node and its chain of left children
+		 * 
+		 * @param node the node to start from
+		 */
+		private void pushLeft(Node node) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+		}
+
+		/**
+		 * Returns whether there is data left to visit
+		 * 
+		 * @return whether next() has data to return
+		 */
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		/**
+		 * Returns the next data in inOrder
+		 * 
+		 * @return the next data
+		 * @throws NoSuchElementException if there is no data left
+		 */
+		@Override
+		public T next() throws NoSuchElementException {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException("next: no data left!");
+			}
+			Node node = stack.pop();
+			pushLeft(node.right);
+			return node.data;
 		}
 	}
 
@@ -43,6 +137,10 @@ public class BST<T> {
 	 * The root node of the BST
 	 */
 	private Node root;
+	/**
+	 * Whether insert and remove rebalance the tree
+	 */
+	private boolean balanced;
 
 	/* CONSTRUCTORS */
 	/**
@@ -50,6 +148,17 @@ public class BST<T> {
 	 */
 	public BST() {
 		root = null;
+		balanced = false;
+	}
+
+	/**
+	 * Creates an empty BST, optionally in balanced (AVL) mode
+	 * 
+	 * @param balanced whether insert and remove should keep the tree balanced
+	 */
+	public BST(boolean balanced) {
+		root = null;
+		this.balanced = balanced;
 	}
 
 	/**
@@ -60,6 +169,20 @@ public class BST<T> {
 	 * @throws IllegalArgumentException if not sorted (precondition)
 	 */
 	public BST(T[] array, Comparator<T> cmp) throws IllegalArgumentException {
+		this(array, cmp, false);
+	}
+
+	/**
+	 * Creates a BST of minimal height from the given array, optionally in balanced
+	 * (AVL) mode so later inserts and removes keep it balanced
+	 * 
+	 * @param array    the array to use
+	 * @param cmp      the way the tree is organized
+	 * @param balanced whether insert and remove should keep the tree balanced
+	 * @throws IllegalArgumentException if not sorted (precondition)
+	 */
+	public BST(T[] array, Comparator<T> cmp, boolean balanced) throws IllegalArgumentException {
+		this.balanced = balanced;
 		if (array == null) {
 			return;
 		}
@@ -102,6 +225,7 @@ public class BST<T> {
 		Node node = new Node(array[mid]);
 		node.left = arrayHelper(begin, mid - 1, array);
 		node.right = arrayHelper(mid + 1, end, array);
+		update(node);
 
 		return node;
 	}
@@ -116,22 +240,32 @@ public class BST<T> {
 		if (bst == null) {
 			return;
 		}
+		balanced = bst.balanced;
 		copyHelper(bst.root, cmp);
 	}
 
 	/**
-	 * Helper method for copy constructor
+	 * Helper method for copy constructor; inserts the nodes in preOrder, walking
+	 * the tree with an explicit stack
 	 * 
-	 * @param node the current node to copy
+	 * @param node the root of the tree to copy
 	 * @param cmp  comparator indicating how to sort data
 	 */
 	private void copyHelper(Node node, Comparator<T> cmp) {
+		ArrayDeque<Node> stack = new ArrayDeque<>();
 		if (node != null) {
-			insert(node.data, cmp);
-			copyHelper(node.left, cmp);
-			copyHelper(node.right, cmp);
+			stack.push(node);
+		}
+		while (!stack.isEmpty()) {
+			Node current = stack.pop();
+			insert(current.data, cmp);
+			if (current.right != null) {
+				stack.push(current.right);
+			}
+			if (current.left != null) {
+				stack.push(current.left);
+			}
 		}
-
 	}
 
 	/* ACCESSORS */
@@ -155,10 +289,10 @@ public class BST<T> {
 	 * @return the maximum of the BST
 	 */
 	private T findMax(Node node) {
-		if (node.right == null) {
-			return node.data;
+		while (node.right != null) {
+			node = node.right;
 		}
-		return findMax(node.right);
+		return node.data;
 	}
 
 	/**
@@ -181,10 +315,10 @@ public class BST<T> {
 	 * @return the min of the BST
 	 */
 	private T findMin(Node node) {
-		if (node.left == null) {
-			return node.data;
+		while (node.left != null) {
+			node = node.left;
 		}
-		return findMin(node.left);
+		return node.data;
 	}
 
 	/**
@@ -209,6 +343,15 @@ public class BST<T> {
 		return root == null;
 	}
 
+	/**
+	 * Returns whether insert and remove keep the tree balanced
+	 * 
+	 * @return if the BST is in balanced mode
+	 */
+	public boolean isBalanced() {
+		return balanced;
+	}
+
 	/**
 	 * Returns height of BST
 	 * 
@@ -219,19 +362,16 @@ public class BST<T> {
 	}
 
 	/**
-	 * Returns height of the bst
+	 * Returns height of the bst, as stored in the node
 	 * 
 	 * @param node the current node whose height to count
-	 * @return height of tree
+	 * @return height of tree, -1 if node is null
 	 */
-	public int getHeight(Node node) {
+	private int getHeight(Node node) {
 		if (node == null) {
 			return -1;
 		}
-
-		int leftHeight = getHeight(node.left);
-		int rightHeight = getHeight(node.right);
-		return 1 + Math.max(leftHeight, rightHeight);
+		return node.height;
 	}
 
 	/**
@@ -242,28 +382,15 @@ public class BST<T> {
 	 * @return the data stored in that tree otherwise null
 	 */
 	public T search(T data, Comparator<T> cmp) {
-		return search(data, root, cmp);
-	}
-
-	/**
-	 * Searches if a data exists in the tree
-	 * 
-	 * @param data the data to search for
-	 * @param node the current node to check
-	 * @param cmp  ordering if the tree
-	 * @return the data stored in that tree otherwise null
-	 */
-	public T search(T data, Node node, Comparator<T> cmp) {
-		if (node == null) {
-			return null;
-		}
-		if (cmp.compare(node.data, data) == 0) {
-			return node.data;
-		} else if (cmp.compare(node.data, data) > 0) {
-			return search(data, node.left, cmp);
-		} else {
-			return search(data, node.right, cmp);
+		Node node = root;
+		while (node != null) {
+			int compare = cmp.compare(node.data, data);
+			if (compare == 0) {
+				return node.data;
+			}
+			node = compare > 0 ? node.left : node.right;
 		}
+		return null;
 	}
 
 	/**
@@ -276,59 +403,109 @@ public class BST<T> {
 	}
 
 	/**
-	 * Returns size of tree (number of nodes)
+	 * Returns size of the subtree, as stored in the node
 	 * 
-	 * @param node the current node
-	 * @return size of tree
+	 * @param node the root of the subtree
+	 * @return size of the subtree, 0 if node is null
 	 */
-	public int getSize(Node node) {
+	private int getSize(Node node) {
 		if (node == null) {
 			return 0;
 		}
-		int leftSize = getSize(node.left);
-		int rightSize = getSize(node.right);
-		return 1 + leftSize + rightSize;
+		return node.size;
 	}
 
-	/* MUTATORS */
 	/**
-	 * Removes data from the BST
-	 *
-	 * @param data the data to remove
-	 * @param cmp  comparator indicating how to sort data
+	 * Returns the data at the given position in inOrder, without visiting the
+	 * nodes before it
+	 * 
+	 * @param k the position, from 0 to getSize() - 1
+	 * @return the k-th smallest data
+	 * @throws IndexOutOfBoundsException if k &lt; 0 or k &gt;= getSize()
 	 */
-	public void remove(T data, Comparator<T> cmp) {
-		root = remove(data, root, cmp);
+	public T select(int k) throws IndexOutOfBoundsException {
+		if (k < 0 || k >= getSize()) {
+			throw new IndexOutOfBoundsException("select: k is out of bounds!");
+		}
+		Node node = root;
+		while (true) {
+			int leftSize = getSize(node.left);
+			if (k < leftSize) {
+				node = node.left;
+			} else if (k == leftSize) {
+				return node.data;
+			} else {
+				k -= leftSize + 1;
+				node = node.right;
+			}
+		}
 	}
 
 	/**
-	 * Helper method for remove
+	 * Returns the number of data in the tree that come before the given data; if
+	 * the data is in the tree this is its position in inOrder
 	 * 
+	 * @param data the data to rank
+	 * @param cmp  ordering of the tree
+	 * @return the number of smaller data in the tree
+	 */
+	public int rank(T data, Comparator<T> cmp) {
+		int rank = 0;
+		Node node = root;
+		while (node != null) {
+			int compare = cmp.compare(data, node.data);
+			if (compare <= 0) {
+				if (compare == 0) {
+					return rank + getSize(node.left);
+				}
+				node = node.left;
+			} else {
+				rank += getSize(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return rank;
+	}
+
+	/* MUTATORS */
+	/**
+	 * Removes data from the BST
+	 *
 	 * @param data the data to remove
-	 * @param node the current node to check
 	 * @param cmp  comparator indicating how to sort data
-	 * @return the node
 	 */
-	private Node remove(T data, Node node, Comparator<T> cmp) {
+	public void remove(T data, Comparator<T> cmp) {
+		// Find the node, remembering the path down to it
+		ArrayList<Node> path = new ArrayList<>();
+		Node node = root;
+		while (node != null) {
+			int compare = cmp.compare(data, node.data);
+			if (compare == 0) {
+				break;
+			}
+			path.add(node);
+			node = compare > 0 ? node.right : node.left;
+		}
 		if (node == null) {
-			return null;
-		} else if (cmp.compare(data, node.data) > 0) {
-			node.right = remove(data, node.right, cmp);
-		} else if (cmp.compare(data, node.data) < 0) {
-			node.left = remove(data, node.left, cmp);
-		} else {
-			if (node.left == null && node.right == null) {
-				node = null;
-			} else if (node.left == null) {
-				node = node.right;
-			} else if (node.right == null) {
-				node = node.left;
-			} else {
-				node.data = findMin(node.right);
-				node.right = remove(findMin(node.right), node.right, cmp);
+			return;
+		}
+
+		// With two children, move the successor's data up and remove the
+		// successor's node instead, which has no left child
+		if (node.left != null && node.right != null) {
+			path.add(node);
+			Node successor = node.right;
+			while (successor.left != null) {
+				path.add(successor);
+				successor = successor.left;
 			}
+			node.data = successor.data;
+			node = successor;
 		}
-		return node;
+
+		Node child = node.left != null ? node.left : node.right;
+		replaceChild(path, path.size(), node, child);
+		fixPath(path);
 	}
 
 	/**
@@ -342,33 +519,131 @@ public class BST<T> {
 			root = new Node(data);
 			return;
 		}
-		insert(data, root, cmp);
+
+		// Walk down to the empty spot, remembering the path
+		ArrayList<Node> path = new ArrayList<>();
+		Node node = root;
+		while (true) {
+			int compare = cmp.compare(data, node.data);
+			if (compare == 0) {
+				return;
+			}
+			path.add(node);
+			Node next = compare > 0 ? node.right : node.left;
+			if (next == null) {
+				if (compare > 0) {
+					node.right = new Node(data);
+				} else {
+					node.left = new Node(data);
+				}
+				break;
+			}
+			node = next;
+		}
+		fixPath(path);
 	}
 
 	/**
-	 * Adds data into the binary search tree
+	 * Updates the heights and sizes along a path from the root, bottom up,
+	 * rebalancing each node in balanced mode
 	 * 
-	 * @param data the data to add
-	 * @param node the current node
-	 * @param cmp  comparator indicating how to sort data
-	 */
-	public void insert(T data, Node node, Comparator<T> cmp) {
-		if (cmp.compare(data, node.data) == 0) {
+	 * @param path the nodes from the root down to the parent of the change
+	 */
+	private void fixPath(ArrayList<Node> path) {
+		for (int i = path.size() - 1; i >= 0; i--) {
+			Node node = path.get(i);
+			update(node);
+			if (balanced) {
+				Node subtree = rebalance(node);
+				if (subtree != node) {
+					replaceChild(path, i, node, subtree);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Points the parent of a node at a replacement instead
+	 * 
+	 * @param path        the nodes from the root down
+	 * @param index       the node's index in path; its parent is at index - 1,
+	 *                    and index 0 means the node is the root
+	 * @param node        the node being replaced
+	 * @param replacement the node to put in its place, possibly null
+	 */
+	private void replaceChild(ArrayList<Node> path, int index, Node node, Node replacement) {
+		if (index == 0) {
+			root = replacement;
 			return;
 		}
-		if (cmp.compare(data, node.data) > 0) {
-			if (node.right == null) {
-				node.right = new Node(data);
-			} else {
-				insert(data, node.right, cmp);
-			}
+		Node parent = path.get(index - 1);
+		if (parent.left == node) {
+			parent.left = replacement;
 		} else {
-			if (node.left == null) {
-				node.left = new Node(data);
-			} else {
-				insert(data, node.left, cmp);
+			parent.right = replacement;
+		}
+	}
+
+	/**
+	 * Recomputes a node's height and size from its children's
+	 * 
+	 * @param node the node to update
+	 */
+	private void update(Node node) {
+		node.height = 1 + Math.max(getHeight(node.left), getHeight(node.right));
+		node.size = 1 + getSize(node.left) + getSize(node.right);
+	}
+
+	/**
+	 * Rotates a node whose subtrees' heights differ by two back into balance
+	 * 
+	 * @param node the node to check, with its height up to date
+	 * @return the root of the subtree after rotating
+	 */
+	private Node rebalance(Node node) {
+		int balance = getHeight(node.left) - getHeight(node.right);
+		if (balance > 1) {
+			if (getHeight(node.left.left) < getHeight(node.left.right)) {
+				node.left = rotateLeft(node.left);
 			}
+			return rotateRight(node);
+		} else if (balance < -1) {
+			if (getHeight(node.right.right) < getHeight(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
 		}
+		return node;
+	}
+
+	/**
+	 * Rotates a subtree right, making the node's left child its parent
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node rotateRight(Node node) {
+		Node pivot = node.left;
+		node.left = pivot.right;
+		pivot.right = node;
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	/**
+	 * Rotates a subtree left, making the node's right child its parent
+	 * 
+	 * @param node the root of the subtree
+	 * @return the new root of the subtree
+	 */
+	private Node rotateLeft(Node node) {
+		Node pivot = node.right;
+		node.right = pivot.left;
+		pivot.left = node;
+		update(node);
+		update(pivot);
+		return pivot;
 	}
 
 	/* ADDITIONAL OPERATIONS */
@@ -386,15 +661,71 @@ public class BST<T> {
 	/**
 	 * Helper method for preOrderString
 	 * 
-	 * @param node     the current node to check
+	 * @param node     the root of the tree
 	 * @param preOrder a StringBuilder to store data in
 	 */
 	private void preOrderString(Node node, StringBuilder preOrder) {
+		ArrayDeque<Node> stack = new ArrayDeque<>();
 		if (node != null) {
-			preOrder.append(node.data + " ");
-			preOrderString(node.left, preOrder);
-			preOrderString(node.right, preOrder);
+			stack.push(node);
+		}
+		while (!stack.isEmpty()) {
+			Node current = stack.pop();
+			preOrder.append(current.data + " ");
+			if (current.right != null) {
+				stack.push(current.right);
+			}
+			if (current.left != null) {
+				stack.push(current.left);
+			}
+		}
+	}
+
+	/**
+	 * Returns an iterator over the data in inOrder. Nodes are visited as next() is
+	 * called, so breaking out of a for-each loop skips the rest of the tree. The
+	 * tree should not be modified while iterating
+	 * 
+	 * @return an inOrder iterator
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new InOrderIterator(root);
+	}
+
+	/**
+	 * Returns an iterator over the data not less than from, in inOrder. Finding
+	 * the start takes O(height) and each next() is amortized O(1), so reading the
+	 * first k data after a cursor costs O(log n + k) in a balanced tree
+	 * 
+	 * @param from the lower bound (inclusive)
+	 * @param cmp  ordering of the tree
+	 * @return an inOrder iterator starting at from
+	 */
+	public Iterator<T> tailIterator(T from, Comparator<T> cmp) {
+		return new InOrderIterator(root, from, cmp);
+	}
+
+	/**
+	 * Returns the data between from and to (both inclusive), in inOrder. Only the
+	 * subtrees that overlap the range are visited
+	 * 
+	 * @param from the lower bound
+	 * @param to   the upper bound
+	 * @param cmp  ordering of the tree
+	 * @return an ArrayList of the data in range, empty if from &gt; to
+	 */
+	public ArrayList<T> range(T from, T to, Comparator<T> cmp) {
+		ArrayList<T> result = new ArrayList<>();
+		Iterator<T> it = tailIterator(from, cmp);
+		while (it.hasNext()) {
+			T data = it.next();
+			if (cmp.compare(data, to) > 0) {
+				break;
+			}
+			result.add(data);
 		}
+		return result;
 	}
 
 	/**
@@ -411,14 +742,19 @@ public class BST<T> {
 	/**
 	 * Helper method for inOrderString
 	 * 
-	 * @param node    the current node to check
+	 * @param node    the root of the tree
 	 * @param inOrder a StringBuilder to store data in
 	 */
 	private void inOrderString(Node node, StringBuilder inOrder) {
-		if (node != null) {
-			inOrderString(node.left, inOrder);
+		ArrayDeque<Node> stack = new ArrayDeque<>();
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			node = stack.pop();
 			inOrder.append(node.data + "\n");
-			inOrderString(node.right, inOrder);
+			node = node.right;
 		}
 	}
 
@@ -436,14 +772,24 @@ public class BST<T> {
 	/**
 	 * Helper method for postOrderString
 	 * 
-	 * @param node      the current node to check
+	 * @param node      the root of the tree
 	 * @param postOrder a StringBuilder to store data in
 	 */
 	private void postOrderString(Node node, StringBuilder postOrder) {
-		if (node != null) {
-			postOrderString(node.left, postOrder);
-			postOrderString(node.right, postOrder);
-			postOrder.append(node.data).append(" ");
+		ArrayDeque<Node> stack = new ArrayDeque<>();
+		Node lastVisited = null;
+		while (node != null || !stack.isEmpty()) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+			Node top = stack.peek();
+			if (top.right != null && top.right != lastVisited) {
+				node = top.right;
+			} else {
+				postOrder.append(top.data).append(" ");
+				lastVisited = stack.pop();
+			}
 		}
 	}
 
@@ -473,12 +819,14 @@ public class BST<T> {
 	 * @return the shared precursor
 	 */
 	private T sharedPrecursor(T data1, T data2, Node node, Comparator<T> cmp) {
-		if (cmp.compare(data1, node.data) > 0 && cmp.compare(data2, node.data) > 0) {
-			return sharedPrecursor(data1, data2, node.right, cmp);
-		} else if (cmp.compare(data1, node.data) < 0 && cmp.compare(data2, node.data) < 0) {
-			return sharedPrecursor(data1, data2, node.left, cmp);
-		} else {
-			return node.data;
+		while (true) {
+			if (cmp.compare(data1, node.data) > 0 && cmp.compare(data2, node.data) > 0) {
+				node = node.right;
+			} else if (cmp.compare(data1, node.data) < 0 && cmp.compare(data2, node.data) < 0) {
+				node = node.left;
+			} else {
+				return node.data;
+			}
 		}
 	}
 }
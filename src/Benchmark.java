@@ -0,0 +1,580 @@
+/**
+ * Benchmark.java
+ * CIS 22C, Final Project
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures the engine's building blocks outside of the menus: lookup speed and
+ * memory of each hash table implementation, how lookups from several threads
+ * and bulk indexing scale with the number of threads, how much smaller
+ * compressing the posting lists makes the index, how BST copes with
+ * titles inserted in sorted order, and how fast lyrics are split into keywords. Run it on its own, like Driver:
+ * 
+ * <pre>
+ * javac -d out src/*.java
+ * java -cp out Benchmark [entries] [songs] [maxThreads]
+ * </pre>
+ */
+public class Benchmark {
+	/**
+	 * The default number of words put in each hash table
+	 */
+	private static final int DEFAULT_ENTRIES = 200000;
+	/**
+	 * The fewest entries a table's heap use is measured with, so the table
+	 * outweighs the noise of reading the used heap
+	 */
+	private static final int MIN_MEMORY_ENTRIES = 200000;
+	/**
+	 * The default number of songs in the synthetic corpus
+	 */
+	private static final int DEFAULT_SONGS = 100000;
+	/**
+	 * The number of words in each synthetic song's lyrics
+	 */
+	private static final int WORDS_PER_SONG = 100;
+	/**
+	 * The number of distinct words the synthetic lyrics are drawn from
+	 */
+	private static final int VOCABULARY = 50000;
+	/**
+	 * The number of times each measurement is taken; the fastest one is reported
+	 */
+	private static final int ROUNDS = 5;
+	/**
+	 * The number of times the threads of a lookup round look up every key
+	 */
+	private static final int LOOKUP_PASSES = 4;
+	/**
+	 * The most titles inserted into a BST in sorted order; unbalanced, inserting
+	 * n of them takes O(n^2) time
+	 */
+	private static final int SORTED_TITLES = 8000;
+	/**
+	 * The seed of the synthetic data, so runs are comparable
+	 */
+	private static final long SEED = 22;
+	/**
+	 * The fewest characters each way of splitting lyrics is timed on per round; a
+	 * small corpus is gone through as many times as it takes
+	 */
+	private static final int MIN_TOKENIZED_CHARS = 4000000;
+
+	/**
+	 * Entry point method for running the benchmarks
+	 * 
+	 * @param args the number of hash table entries, the number of songs and the
+	 *             most threads to index with, all optional
+	 */
+	public static void main(String[] args) {
+		int entries = DEFAULT_ENTRIES;
+		int songs = DEFAULT_SONGS;
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		try {
+			if (args.length > 0) {
+				entries = Integer.parseInt(args[0]);
+			}
+			if (args.length > 1) {
+				songs = Integer.parseInt(args[1]);
+			}
+			if (args.length > 2) {
+				maxThreads = Integer.parseInt(args[2]);
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Usage: java Benchmark [entries] [songs] [maxThreads]\nMessage:\n" + e.getMessage());
+			System.exit(1);
+		}
+
+		benchmarkTables(entries);
+		System.out.println();
+		benchmarkLookups(entries, maxThreads);
+		System.out.println();
+		benchmarkIndexing(songs, maxThreads);
+		System.out.println();
+		benchmarkIndexBytes(songs);
+		System.out.println();
+		benchmarkSortedInserts();
+		System.out.println();
+		benchmarkTokenizing(songs);
+	}
+
+	/**
+	 * Prints, for each hash table implementation, the time per add, per
+	 * successful get and per unsuccessful get, and the heap the table uses per
+	 * entry beyond the entries themselves, the median of several rounds with at
+	 * least MIN_MEMORY_ENTRIES entries
+	 * 
+	 * @param entries the number of words to put in each table
+	 */
+	private static void benchmarkTables(int entries) {
+		// Each lookup uses an equal copy of the key, as SearchEngine does
+		WordID[] keys = newWordIds("word", entries);
+		WordID[] hits = newWordIds("word", entries);
+		WordID[] misses = newWordIds("miss", entries);
+		WordID[] memoryKeys = entries >= MIN_MEMORY_ENTRIES ? keys : newWordIds("word", MIN_MEMORY_ENTRIES);
+
+		System.out.printf("Hash tables, %d entries (fastest of %d rounds; bytes/entry the median, with %d entries)%n",
+				entries, ROUNDS, memoryKeys.length);
+		System.out.printf("%-16s %10s %10s %10s %12s%n", "table", "add ns/op", "hit ns/op", "miss ns/op",
+				"bytes/entry");
+		for (SearchEngine.TableType tableType : SearchEngine.TableType.values()) {
+			long add = Long.MAX_VALUE;
+			long hit = Long.MAX_VALUE;
+			long miss = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				ElementTable<WordID> table = SearchEngine.newTable(tableType);
+				for (WordID key : keys) {
+					table.add(key);
+				}
+				add = Math.min(add, System.nanoTime() - start);
+				hit = Math.min(hit, timeGets(table, hits));
+				miss = Math.min(miss, timeGets(table, misses));
+			}
+
+			System.out.printf("%-16s %10.1f %10.1f %10.1f %12.1f%n", tableType, (double) add / entries,
+					(double) hit / entries, (double) miss / entries, bytesPerEntry(tableType, memoryKeys));
+		}
+	}
+
+	/**
+	 * Prints, for each hash table implementation, how many successful gets per
+	 * second 1 to maxThreads threads make on one shared table, and the speedup
+	 * over one thread. The threads split a fixed number of lookups between them
+	 * 
+	 * @param entries    the number of words in each table
+	 * @param maxThreads the most threads to look up from
+	 */
+	private static void benchmarkLookups(int entries, int maxThreads) {
+		WordID[] keys = newWordIds("word", entries);
+		WordID[] hits = newWordIds("word", entries);
+
+		System.out.printf("Lookups from several threads, %d gets (fastest of %d rounds)%n",
+				(long) entries * LOOKUP_PASSES, ROUNDS);
+		System.out.printf("%-16s %-8s %12s %8s%n", "table", "threads", "gets/s", "speedup");
+		for (SearchEngine.TableType tableType : SearchEngine.TableType.values()) {
+			ElementTable<WordID> table = SearchEngine.newTable(tableType);
+			for (WordID key : keys) {
+				table.add(key);
+			}
+			timeParallelGets(table, hits, maxThreads);
+
+			long single = 0;
+			for (int threads = 1; threads <= maxThreads; threads++) {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < ROUNDS; round++) {
+					best = Math.min(best, timeParallelGets(table, hits, threads));
+				}
+				if (threads == 1) {
+					single = best;
+				}
+				System.out.printf("%-16s %-8d %12.0f %8.2f%n", tableType, threads,
+						(double) entries * LOOKUP_PASSES / (best / 1e9), (double) single / best);
+			}
+		}
+	}
+
+	/**
+	 * Prints how long the synthetic corpus takes to index with 1 to maxThreads
+	 * threads, and the speedup over one thread
+	 * 
+	 * @param songs      the number of songs in the corpus
+	 * @param maxThreads the most threads to index with
+	 */
+	private static void benchmarkIndexing(int songs, int maxThreads) {
+		String[] lyrics = syntheticLyrics(songs);
+
+		// Warm up the JIT on a slice of the corpus
+		new SearchEngine().indexSongsParallel(newSongs(lyrics, Math.min(songs, 10000)), maxThreads);
+
+		System.out.printf("Indexing %d songs of %d words (fastest of %d rounds)%n", songs, WORDS_PER_SONG,
+				ROUNDS);
+		System.out.printf("%-8s %10s %12s %8s%n", "threads", "ms", "songs/s", "speedup");
+		long single = 0;
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			long best = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				// Songs remember their doc ID, so each engine gets its own
+				Song[] batch = newSongs(lyrics, songs);
+				SearchEngine engine = new SearchEngine();
+				long start = System.nanoTime();
+				engine.indexSongsParallel(batch, threads);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			if (threads == 1) {
+				single = best;
+			}
+			System.out.printf("%-8d %10.1f %12.0f %8.2f%n", threads, best / 1e6, songs / (best / 1e9),
+					(double) single / best);
+		}
+	}
+
+	/**
+	 * Prints how many bytes the posting lists of the synthetic corpus take before
+	 * and after compressIndex, and checks that a sample of keywords still finds
+	 * the same number of songs once compressed
+	 * 
+	 * @param songs the number of songs in the corpus
+	 */
+	private static void benchmarkIndexBytes(int songs) {
+		String[] lyrics = syntheticLyrics(songs);
+		SearchEngine engine = new SearchEngine();
+		engine.indexSongsParallel(newSongs(lyrics, songs), 1);
+
+		String[] sample = lyrics[0].trim().split(" ");
+		int[] found = new int[sample.length];
+		for (int i = 0; i < sample.length; i++) {
+			found[i] = engine.searchByKeyword(sample[i]).getSize();
+		}
+		long plain = engine.getIndexBytes();
+		engine.compressIndex();
+		long compressed = engine.getIndexBytes();
+		for (int i = 0; i < sample.length; i++) {
+			if (engine.searchByKeyword(sample[i]).getSize() != found[i]) {
+				throw new IllegalStateException("benchmarkIndexBytes: '" + sample[i] + "' changed when compressed");
+			}
+		}
+
+		System.out.printf("Posting lists of %d songs, %d distinct words%n", songs, engine.getTotalUniqueWords());
+		System.out.printf("%-12s %14s %12s%n", "form", "bytes", "bytes/song");
+		System.out.printf("%-12s %14d %12.1f%n", "int[]", plain, (double) plain / songs);
+		System.out.printf("%-12s %14d %12.1f%n", "compressed", compressed, (double) compressed / songs);
+		System.out.printf("%-12s %14.2f%n", "ratio", (double) plain / compressed);
+	}
+
+	/**
+	 * Prints how long an unbalanced and a balanced BST take to insert, then
+	 * search for, song titles that arrive in sorted order, as
+	 * FileHandler.sortFilesByName returns them, and the height each tree ends up
+	 * with
+	 */
+	private static void benchmarkSortedInserts() {
+		// The order SongNameComparator keeps
+		Comparator<Song> byTitle = Comparator.comparing(Song::getTitle);
+		System.out.printf("BST, titles inserted in sorted order (fastest of %d rounds)%n", ROUNDS);
+		System.out.printf("%-10s %-8s %10s %10s %8s%n", "mode", "titles", "insert ms", "search ms", "height");
+		for (int titles = SORTED_TITLES / 4; titles <= SORTED_TITLES; titles *= 2) {
+			Song[] sorted = new Song[titles];
+			for (int i = 0; i < titles; i++) {
+				sorted[i] = new Song(String.format("Song %07d", i), 2000, "Synthetic", "");
+			}
+			for (boolean balanced : new boolean[] { false, true }) {
+				long insert = Long.MAX_VALUE;
+				long search = Long.MAX_VALUE;
+				int height = 0;
+				for (int round = 0; round < ROUNDS; round++) {
+					BST<Song> tree = new BST<>(balanced);
+					long start = System.nanoTime();
+					for (Song song : sorted) {
+						tree.insert(song, byTitle);
+					}
+					insert = Math.min(insert, System.nanoTime() - start);
+
+					start = System.nanoTime();
+					for (Song song : sorted) {
+						if (tree.search(song, byTitle) == null) {
+							throw new IllegalStateException("benchmarkSortedInserts: lost " + song.getTitle());
+						}
+					}
+					search = Math.min(search, System.nanoTime() - start);
+					height = tree.getHeight();
+				}
+				System.out.printf("%-10s %-8d %10.1f %10.1f %8d%n", balanced ? "balanced" : "unbalanced", titles,
+						insert / 1e6, search / 1e6, height);
+			}
+		}
+	}
+
+	/**
+	 * Prints how fast the real lyrics in ./data/ and the synthetic lyrics are
+	 * split into keywords by the regex passes Song.removeWords used to make, by
+	 * Song.removeWords, which builds the filtered String with a Tokenizer, and by
+	 * a Tokenizer handing each keyword to a Consumer
+	 * 
+	 * @param songs the number of songs in the synthetic corpus
+	 */
+	private static void benchmarkTokenizing(int songs) {
+		System.out.printf("Splitting lyrics into keywords (fastest of %d rounds)%n", ROUNDS);
+		System.out.printf("%-10s %-10s %10s %12s %10s%n", "lyrics", "method", "ms", "Mchars/s", "same out");
+		try (Stream<Song> real = new FileHandler().streamSongs("./data/", "song", ".txt", false)) {
+			benchmarkTokenizing("real", real.map(Song::getUnfilteredLyrics).toArray(String[]::new));
+		} catch (IOException | UncheckedIOException e) {
+			System.out.println("real       skipped, ./data/ can't be read: " + e.getMessage());
+		}
+		benchmarkTokenizing("synthetic", syntheticLyrics(Math.min(songs, 10000)));
+	}
+
+	/**
+	 * Times each way of splitting one corpus, and counts the texts for which
+	 * Song.removeWords gives the same keywords as the old regex passes
+	 * 
+	 * @param name   the corpus's name
+	 * @param lyrics the lyrics of each song
+	 */
+	private static void benchmarkTokenizing(String name, String[] lyrics) {
+		long chars = 0;
+		for (String text : lyrics) {
+			chars += text.length();
+		}
+		int passes = (int) Math.max(1, (MIN_TOKENIZED_CHARS + chars - 1) / Math.max(1, chars));
+
+		int same = 0;
+		for (String text : lyrics) {
+			if (regexRemoveWords(text).trim().equals(Song.removeWords(text))) {
+				same++;
+			}
+		}
+
+		Tokenizer tokenizer = Song.getDefaultAnalyzer().newTokenizer();
+		int[] words = new int[1];
+		Tokenizer.Consumer counter = (buffer, length) -> words[0]++;
+		long regex = Long.MAX_VALUE;
+		long filter = Long.MAX_VALUE;
+		long tokenize = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int pass = 0; pass < passes; pass++) {
+				for (String text : lyrics) {
+					regexRemoveWords(text);
+				}
+			}
+			regex = Math.min(regex, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int pass = 0; pass < passes; pass++) {
+				for (String text : lyrics) {
+					Song.removeWords(text);
+				}
+			}
+			filter = Math.min(filter, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			for (int pass = 0; pass < passes; pass++) {
+				for (String text : lyrics) {
+					tokenizer.tokenize(text, counter);
+				}
+			}
+			tokenize = Math.min(tokenize, System.nanoTime() - start);
+		}
+
+		double total = (double) chars * passes;
+		String sameText = same + "/" + lyrics.length;
+		System.out.printf("%-10s %-10s %10.1f %12.1f %10s%n", name, "regex", regex / 1e6, total / (regex / 1e3),
+				sameText);
+		System.out.printf("%-10s %-10s %10.1f %12.1f %10s%n", name, "filter", filter / 1e6, total / (filter / 1e3),
+				sameText);
+		System.out.printf("%-10s %-10s %10.1f %12.1f %10s%n", name, "tokenize", tokenize / 1e6,
+				total / (tokenize / 1e3), "-");
+	}
+
+	/**
+	 * Song.removeWords as it was before Tokenizer: strips punctuation with a
+	 * regex, lowercases, splits with another regex and checks each word against
+	 * Song.REMOVED_WORDS one by one
+	 * 
+	 * @param input the lyrics
+	 * @return the keywords separated by single spaces
+	 */
+	private static String regexRemoveWords(String input) {
+		input = input.replaceAll("[^a-zA-Z0-9\\s]", "").toLowerCase();
+		ArrayList<String> words = new ArrayList<>(Arrays.asList(input.split("\\s+")));
+		ArrayList<String> filteredWords = new ArrayList<>();
+		for (String word : words) {
+			boolean shouldRemove = false;
+			for (String removed : Song.REMOVED_WORDS) {
+				if (word.equals(removed)) {
+					shouldRemove = true;
+					break;
+				}
+			}
+			if (!shouldRemove) {
+				filteredWords.add(word);
+			}
+		}
+		return String.join(" ", filteredWords);
+	}
+
+	/**
+	 * Measures the heap a table of a type takes per entry, not counting the
+	 * entries, as the median of ROUNDS rounds; a round whose difference in used
+	 * heap isn't positive, because a collection freed more than the table took,
+	 * is left out
+	 * 
+	 * @param tableType the implementation
+	 * @param keys      the entries to add
+	 * @return the bytes per entry, or NaN if no round could be measured
+	 */
+	private static double bytesPerEntry(SearchEngine.TableType tableType, WordID[] keys) {
+		long[] samples = new long[ROUNDS];
+		int count = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = usedMemory();
+			ElementTable<WordID> table = SearchEngine.newTable(tableType);
+			for (WordID key : keys) {
+				table.add(key);
+			}
+			long bytes = usedMemory() - before;
+			if (table.getNumElements() != keys.length) {
+				throw new IllegalStateException("bytesPerEntry: " + tableType + " lost entries");
+			}
+			if (bytes > 0) {
+				samples[count++] = bytes;
+			}
+		}
+		if (count == 0) {
+			return Double.NaN;
+		}
+		Arrays.sort(samples, 0, count);
+		return (double) samples[count / 2] / keys.length;
+	}
+
+	/**
+	 * Times a get of each key
+	 * 
+	 * @param table the table to search
+	 * @param keys  the keys to look up
+	 * @return the elapsed nanoseconds
+	 */
+	private static long timeGets(ElementTable<WordID> table, WordID[] keys) {
+		int found = 0;
+		long start = System.nanoTime();
+		for (WordID key : keys) {
+			if (table.get(key) != null) {
+				found++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (found != 0 && found != keys.length) {
+			throw new IllegalStateException("timeGets: found " + found + " of " + keys.length + " keys");
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Times LOOKUP_PASSES gets of each key, split between threads that all read
+	 * the same table at once
+	 * 
+	 * @param table   the table to search, which must hold every key
+	 * @param keys    the keys to look up
+	 * @param threads the number of threads
+	 * @return the elapsed nanoseconds
+	 */
+	private static long timeParallelGets(ElementTable<WordID> table, WordID[] keys, int threads) {
+		int[] found = new int[threads];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int first = t;
+			workers[t] = new Thread(() -> {
+				int count = 0;
+				for (int pass = 0; pass < LOOKUP_PASSES; pass++) {
+					for (int i = first; i < keys.length; i += threads) {
+						if (table.get(keys[i]) != null) {
+							count++;
+						}
+					}
+				}
+				found[first] = count;
+			});
+		}
+
+		long start = System.nanoTime();
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("timeParallelGets: interrupted", e);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		int total = 0;
+		for (int count : found) {
+			total += count;
+		}
+		if (total != keys.length * LOOKUP_PASSES) {
+			throw new IllegalStateException("timeParallelGets: found " + total + " of " + keys.length * LOOKUP_PASSES
+					+ " keys");
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Creates distinct words numbered from 0, each with its number as its ID
+	 * 
+	 * @param stem  the start of each word
+	 * @param count the number of words
+	 * @return the WordIDs
+	 */
+	private static WordID[] newWordIds(String stem, int count) {
+		WordID[] wordIds = new WordID[count];
+		for (int i = 0; i < count; i++) {
+			wordIds[i] = new WordID(stem + i, i);
+		}
+		return wordIds;
+	}
+
+	/**
+	 * Generates lyrics whose words are drawn from a fixed vocabulary, common words
+	 * far more often than rare ones
+	 * 
+	 * @param songs the number of songs
+	 * @return the lyrics of each song
+	 */
+	private static String[] syntheticLyrics(int songs) {
+		Random random = new Random(SEED);
+		String[] vocabulary = new String[VOCABULARY];
+		for (int i = 0; i < VOCABULARY; i++) {
+			vocabulary[i] = Integer.toString(i, Character.MAX_RADIX) + "x";
+		}
+		String[] lyrics = new String[songs];
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < songs; i++) {
+			builder.setLength(0);
+			for (int j = 0; j < WORDS_PER_SONG; j++) {
+				double r = random.nextDouble();
+				builder.append(vocabulary[(int) (r * r * r * VOCABULARY)]).append(' ');
+			}
+			lyrics[i] = builder.toString();
+		}
+		return lyrics;
+	}
+
+	/**
+	 * Creates unindexed songs with the given lyrics
+	 * 
+	 * @param lyrics the lyrics of each song
+	 * @param count  the number of songs to create
+	 * @return the songs
+	 */
+	private static Song[] newSongs(String[] lyrics, int count) {
+		Song[] songs = new Song[count];
+		for (int i = 0; i < count; i++) {
+			songs[i] = new Song("Song " + i, 2000, "Synthetic", lyrics[i]);
+		}
+		return songs;
+	}
+
+	/**
+	 * Returns the heap in use after asking for a garbage collection
+	 * 
+	 * @return the used heap in bytes
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
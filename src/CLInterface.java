@@ -8,6 +8,9 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Scanner;
 
 /**
@@ -92,9 +95,7 @@ public class CLInterface {
 		// Spin up the search engine and import the songs from file
 		this.amse = new SearchEngine();
 		try {
-			for (Song song : ImportSongs.fetchSongs()) {
-				this.amse.indexSong(song);
-			}
+			this.amse.indexSongsParallel(ImportSongs.fetchSongs(), Runtime.getRuntime().availableProcessors());
 		} catch (IOException e) {
 			throw e;
 		}
@@ -302,14 +303,15 @@ public class CLInterface {
 			} else if (userSelection == 2) {
 				// System.out.println("recordSearch() Debug: 'Find and display records using
 				// keywords' was selected.");
-				System.out.print("Please enter a keyword to search for one or more records: ");
+				System.out.print("Please enter one or more keywords (AND, OR, NOT, \"phrases\" allowed) to search for records: ");
 				String query = keyboardInput.nextLine().trim(); // Ignore trailing white space
-				BST<Song> results = this.amse.searchByKeyword(query);
+				BST<Song> results = this.amse.search(query);
 				if (results != null) {
 					this.searchResultsMenu(query, results, searchMenu);
 					resetMenu = true;
 				} else {
-					System.out.println("No songs found with lyrics containing the keyword '" + query + "'.");
+					System.out.println("No songs found with lyrics matching '" + query + "'.");
+					this.suggestKeywords(query);
 				}
 			} else if (userSelection == 3) {
 				// System.out.println("recordSearch() Debug: 'Return to Main Menu' was
@@ -329,6 +331,33 @@ public class CLInterface {
 		this.clearConsole();
 	}
 
+	/**
+	 * Suggests indexed words a typo or two away from a single keyword of at least
+	 * three characters that found nothing, along with how many words the fuzzy
+	 * lookup checked and how long it took. The query is analyzed first, so a
+	 * stop word, which found nothing because it isn't indexed, gets no
+	 * suggestions
+	 * 
+	 * @param query the search query
+	 */
+	private void suggestKeywords(String query) {
+		final int MIN_LENGTH = 3;
+		final int MAX_SUGGESTIONS = 5;
+		String keyword = this.amse.getAnalyzer().filter(query);
+		if (keyword.length() < MIN_LENGTH || keyword.contains(" ")) {
+			return;
+		}
+		FuzzyIndex.Result match = this.amse.fuzzyMatch(keyword, keyword.length() <= 4 ? 1 : 2);
+		ArrayList<String> words = match.getWords();
+		if (words.isEmpty()) {
+			return;
+		}
+		Collections.sort(words);
+		System.out.printf("Did you mean: %s? (%d words checked in %.3f ms)%n",
+				String.join(", ", words.subList(0, Math.min(MAX_SUGGESTIONS, words.size()))),
+				match.getCandidateCount(), match.getNanos() / 1e6);
+	}
+
 	/**
 	 * Displays the results menu from a keyword search
 	 * 
@@ -347,10 +376,8 @@ public class CLInterface {
 		// Build the menu rows using the BST results
 		menuRows = new String[resultCount + 1]; // + 1 for Return option
 		int index = -1;
-		for (String row : results.inOrderString().split("\n")) {
-			if (row.trim().startsWith("Title: ")) {
-				menuRows[++index] = row.split(": ")[1].trim();
-			}
+		for (Song song : results) {
+			menuRows[++index] = song.getTitle();
 		}
 		menuRows[++index] = "Return to the Search Menu";
 
@@ -362,7 +389,7 @@ public class CLInterface {
 			article = "the";
 		}
 		String resultsSummary = String.format(
-				"   %d song%s found with lyrics containing the keyword '%s'.%n"
+				"   %d song%s found with lyrics matching '%s'.%n"
 						+ "   Enter %s number from the menu above to see more information about %s%n"
 						+ "   result, or you can enter '%d' to return to the Search Menu.",
 				resultCount, plural, keyword, article, article, menuRows.length);
@@ -380,8 +407,7 @@ public class CLInterface {
 			if (userSelection == resultCount + 1) {
 				returnToParent = true;
 			} else {
-				Song songChoice = new Song(menuRows[userSelection - 1]);
-				System.out.println(results.search(songChoice, new SongNameComparator()));
+				System.out.println(results.select(userSelection - 1));
 			}
 
 			if (!returnToParent) {
@@ -495,49 +521,16 @@ class ImportSongs {
 		final String DIR_PATH = "./data/";
 		final String PREFIX = "song";
 		final String SUFFIX = ".txt";
-		String rawData = "";
 
-		// Fetch the raw data from the files
+		// Parse the songs one file at a time, so only the Song
+		// objects are held in memory, not the raw text of every file
 		try (FileHandler fh = new FileHandler()) {
-			rawData = fh.readDir(DIR_PATH, PREFIX, SUFFIX);
+			return fh.streamSongs(DIR_PATH, PREFIX, SUFFIX).toArray(Song[]::new);
 		} catch (IOException ioe) {
 			throw new IOException("parse(): Failed to fetch data.", ioe);
+		} catch (UncheckedIOException uioe) {
+			throw new IOException("parse(): Failed to parse data.", uioe.getCause());
 		}
-
-		// Read the song count and parse the data
-		int songCount = 0;
-		Song[] songs;
-		try (Scanner stringScanner = new Scanner(rawData)) {
-			// Get song count by consuming text,
-			// up until first int
-			while (!stringScanner.hasNextInt()) {
-				stringScanner.next();
-			}
-			songCount = stringScanner.nextInt();
-			if (stringScanner.hasNextLine()) {
-				stringScanner.nextLine();
-			}
-
-			// Parse the data
-			songs = new Song[songCount];
-			int i = -1;
-			while (stringScanner.hasNextLine()) {
-				Song song;
-				stringScanner.nextLine(); // Skip over file start stamp
-				String title = stringScanner.nextLine();
-				int year = Integer.parseInt(stringScanner.nextLine());
-				String album = stringScanner.nextLine();
-				String lyrics = stringScanner.nextLine();
-				stringScanner.nextLine(); // Skip over file end stamp
-
-				song = new Song(title, year, album, lyrics);
-				songs[++i] = song;
-			}
-		} catch (Exception e) {
-			throw new IOException("parse(): Failed to parse data.", e);
-		}
-
-		return songs;
 	}
 
 }
\ No newline at end of file
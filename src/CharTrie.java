@@ -0,0 +1,128 @@
+/**
+ * CharTrie.java
+ * CIS 22C, Final Project
+ */
+import java.util.Arrays;
+
+/**
+ * An immutable set of words made of printable ASCII characters, stored as a
+ * trie in one flat array of child links. Looking up a word follows one link
+ * per character straight out of a char buffer, so checking a token takes time
+ * proportional to its length, whatever the size of the set, and needs no
+ * String and no hashing. Words with any other character can never be looked
+ * up and are left out.
+ */
+public class CharTrie {
+	/**
+	 * The first character of the alphabet
+	 */
+	private static final char FIRST = '!';
+	/**
+	 * The number of distinct characters: '!' to '~', i.e. printable ASCII
+	 * without the space
+	 */
+	private static final int ALPHABET = '~' - FIRST + 1;
+	/**
+	 * children[node * ALPHABET + c] is the child of node for character c, or 0
+	 * if there is none; node 0 is the root
+	 */
+	private final int[] children;
+	/**
+	 * Whether a word ends at each node
+	 */
+	private final boolean[] terminal;
+
+	/* Constructors */
+	/**
+	 * Constructor that builds the set from a list of words
+	 * 
+	 * @param words the words in the set
+	 */
+	public CharTrie(Iterable<String> words) {
+		int[] links = new int[ALPHABET * 16];
+		boolean[] ends = new boolean[16];
+		int numNodes = 1;
+		for (String word : words) {
+			if (!isValid(word)) {
+				continue;
+			}
+			int node = 0;
+			for (int i = 0; i < word.length(); i++) {
+				int slot = node * ALPHABET + indexOf(word.charAt(i));
+				if (links[slot] == 0) {
+					if (numNodes == ends.length) {
+						links = Arrays.copyOf(links, links.length * 2);
+						ends = Arrays.copyOf(ends, ends.length * 2);
+					}
+					links[slot] = numNodes++;
+				}
+				node = links[slot];
+			}
+			ends[node] = true;
+		}
+		children = Arrays.copyOf(links, numNodes * ALPHABET);
+		terminal = Arrays.copyOf(ends, numNodes);
+	}
+
+	/**
+	 * Returns the index of a character in the alphabet
+	 * 
+	 * @param c the character
+	 * @return 0 to ALPHABET - 1, or -1 if it isn't printable ASCII
+	 */
+	private static int indexOf(char c) {
+		return c >= FIRST && c <= '~' ? c - FIRST : -1;
+	}
+
+	/**
+	 * Checks if a word is non-empty and only made of the alphabet
+	 * 
+	 * @param word the word to check
+	 * @return if the word can be stored
+	 */
+	private static boolean isValid(String word) {
+		if (word.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			if (indexOf(word.charAt(i)) == -1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Accessors */
+	/**
+	 * Checks if the set contains the word in part of a char buffer
+	 * 
+	 * @param chars  the buffer
+	 * @param offset the start of the word
+	 * @param length the length of the word
+	 * @return if the word is in the set
+	 */
+	public boolean contains(char[] chars, int offset, int length) {
+		int node = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int c = indexOf(chars[i]);
+			if (c == -1) {
+				return false;
+			}
+			node = children[node * ALPHABET + c];
+			if (node == 0) {
+				return false;
+			}
+		}
+		return length > 0 && terminal[node];
+	}
+
+	/**
+	 * Checks if the set contains a word
+	 * 
+	 * @param word the word to check
+	 * @return if the word is in the set
+	 */
+	public boolean contains(String word) {
+		return contains(word.toCharArray(), 0, word.length());
+	}
+}
@@ -0,0 +1,389 @@
+/**
+ * ConcurrentHashTable.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe hash table for indexing from several threads at once. The
+ * buckets are split into stripes, each guarded by its own lock, so writers
+ * only block each other when they hash to the same stripe. Each bucket is an
+ * immutable array that writers replace rather than modify, which lets readers
+ * skip the locks entirely and still always see a whole bucket.
+ * @param <T> the type of elements stored in the ConcurrentHashTable
+ */
+public class ConcurrentHashTable<T> implements ElementTable<T> {
+	/**
+	 * The number of locks the buckets are split between; a power of two
+	 */
+	private static final int NUM_STRIPES = 64;
+	/**
+	 * The load factor past which the table doubles
+	 */
+	private static final double MAX_LOAD_FACTOR = 0.75;
+	/**
+	 * A bucket with no elements
+	 */
+	private static final Object[] EMPTY = new Object[0];
+	/**
+	 * The number of elements stored in the table
+	 */
+	private final LongAdder numElements;
+	/**
+	 * The stripe locks; bucket i is guarded by locks[i % NUM_STRIPES]
+	 */
+	private final ReentrantLock[] locks;
+	/**
+	 * The buckets; replaced as a whole when the table grows
+	 */
+	private volatile AtomicReferenceArray<Object[]> table;
+
+	/* Constructors */
+	/**
+	 * Constructor that takes in a size to make the table
+	 * 
+	 * @param size the minimum number of buckets
+	 * @throws IllegalArgumentException if size &lt;= 0
+	 */
+	public ConcurrentHashTable(int size) throws IllegalArgumentException {
+		if (size <= 0) {
+			throw new IllegalArgumentException("ConcurrentHashTable(size): size is <= 0");
+		}
+		int capacity = NUM_STRIPES;
+		while (capacity < size) {
+			capacity *= 2;
+		}
+		numElements = new LongAdder();
+		locks = new ReentrantLock[NUM_STRIPES];
+		for (int i = 0; i < NUM_STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+		table = newTable(capacity);
+	}
+
+	/**
+	 * Creates a table of empty buckets
+	 * 
+	 * @param capacity the number of buckets, a power of two
+	 * @return the new table
+	 */
+	private static AtomicReferenceArray<Object[]> newTable(int capacity) {
+		AtomicReferenceArray<Object[]> buckets = new AtomicReferenceArray<>(capacity);
+		for (int i = 0; i < capacity; i++) {
+			buckets.set(i, EMPTY);
+		}
+		return buckets;
+	}
+
+	/**
+	 * Spreads the high bits of the hash code into the low bits used for the bucket
+	 * 
+	 * @param obj the object to hash
+	 * @return the spread hash
+	 */
+	private static int hash(Object obj) {
+		int h = obj.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the stored element equal to element in a bucket
+	 * 
+	 * @param bucket  the bucket to search
+	 * @param element the element to look for
+	 * @return the index in the bucket or -1 if it doesn't exist
+	 */
+	private static int indexIn(Object[] bucket, Object element) {
+		for (int i = 0; i < bucket.length; i++) {
+			if (bucket[i].equals(element)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/* Accessors */
+	/**
+	 * Returns num of elements
+	 * 
+	 * @return num of elements
+	 */
+	public int getNumElements() {
+		return numElements.intValue();
+	}
+
+	/**
+	 * Returns load factor: numElements / numBuckets
+	 * 
+	 * @return load factor
+	 */
+	public double getLoadFactor() {
+		return numElements.sum() * 1.0 / table.length();
+	}
+
+	/**
+	 * Checks if the table contains an element
+	 * 
+	 * @param element the element to check
+	 * @return if it contains the element
+	 */
+	public boolean contains(T element) {
+		return get(element) != null;
+	}
+
+	/**
+	 * Checks if an element exists in table or not, without locking
+	 * 
+	 * @param element the element to check for
+	 * @return the bucket of the element or -1 if it doesn't exist
+	 * @throws NullPointerException element is null
+	 */
+	public int find(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("find: element is null!");
+		}
+		AtomicReferenceArray<Object[]> buckets = table;
+		int bucket = hash(element) & (buckets.length() - 1);
+		return indexIn(buckets.get(bucket), element) == -1 ? -1 : bucket;
+	}
+
+	/**
+	 * Gets the element if it exists, without locking
+	 * 
+	 * @param element the element to check for
+	 * @return the element if it exists, null if not
+	 * @throws NullPointerException if element is null
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in buckets
+	public T get(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("get: element is null!");
+		}
+		AtomicReferenceArray<Object[]> buckets = table;
+		Object[] bucket = buckets.get(hash(element) & (buckets.length() - 1));
+		int i = indexIn(bucket, element);
+		return i == -1 ? null : (T) bucket[i];
+	}
+
+	/**
+	 * Gets all the elements and add them into an ArrayList. Every stripe is locked
+	 * while copying, so the result is a snapshot no writer was partway through
+	 * 
+	 * @return an arrayList of elements
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in buckets
+	public ArrayList<T> getAllElements() {
+		lockAll();
+		try {
+			ArrayList<T> elements = new ArrayList<>(numElements.intValue());
+			AtomicReferenceArray<Object[]> buckets = table;
+			for (int i = 0; i < buckets.length(); i++) {
+				for (Object element : buckets.get(i)) {
+					elements.add((T) element);
+				}
+			}
+			return elements;
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/* Mutators */
+	/**
+	 * Adds an element to the table
+	 * 
+	 * @param element the element to add
+	 * @throws NullPointerException element is null
+	 */
+	public void add(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("add: element is null!");
+		}
+		int h = hash(element);
+		ReentrantLock lock = locks[h & (NUM_STRIPES - 1)];
+		lock.lock();
+		try {
+			append(table, h, element);
+		} finally {
+			lock.unlock();
+		}
+		growIfNeeded();
+	}
+
+	/**
+	 * Returns the element equal to the given key, first adding the element the
+	 * creator makes from the key if there is none; two threads adding equal
+	 * elements at once both get the one that was stored. The creator runs while
+	 * the key's stripe is locked
+	 * 
+	 * @param key     the element to look up
+	 * @param creator makes the element to add from the key; it must equal key
+	 * @return the stored element equal to key
+	 * @throws NullPointerException key or the created element is null
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in buckets
+	public T getOrAdd(T key, Function<? super T, ? extends T> creator) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("getOrAdd: key is null!");
+		}
+		T stored = get(key);
+		if (stored != null) {
+			return stored;
+		}
+		T element;
+		int h = hash(key);
+		ReentrantLock lock = locks[h & (NUM_STRIPES - 1)];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Object[]> buckets = table;
+			Object[] bucket = buckets.get(h & (buckets.length() - 1));
+			int i = indexIn(bucket, key);
+			if (i != -1) {
+				return (T) bucket[i];
+			}
+			element = creator.apply(key);
+			if (element == null) {
+				throw new NullPointerException("getOrAdd: created element is null!");
+			}
+			append(buckets, h, element);
+		} finally {
+			lock.unlock();
+		}
+		growIfNeeded();
+		return element;
+	}
+
+	/**
+	 * Replaces an element's bucket with a copy that has the element on the end;
+	 * the caller holds the bucket's stripe lock
+	 * 
+	 * @param buckets the current table
+	 * @param h       the spread hash of element
+	 * @param element the element to add
+	 */
+	private void append(AtomicReferenceArray<Object[]> buckets, int h, Object element) {
+		int b = h & (buckets.length() - 1);
+		Object[] bucket = buckets.get(b);
+		Object[] copy = new Object[bucket.length + 1];
+		System.arraycopy(bucket, 0, copy, 0, bucket.length);
+		copy[bucket.length] = element;
+		buckets.set(b, copy);
+		numElements.increment();
+	}
+
+	/**
+	 * Deletes an element from the table
+	 * 
+	 * @param element the element to delete
+	 * @return if element deleted or not
+	 * @throws NullPointerException if element is null
+	 */
+	public boolean delete(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("delete: element is null!");
+		}
+		int h = hash(element);
+		ReentrantLock lock = locks[h & (NUM_STRIPES - 1)];
+		lock.lock();
+		try {
+			AtomicReferenceArray<Object[]> buckets = table;
+			int b = h & (buckets.length() - 1);
+			Object[] bucket = buckets.get(b);
+			int i = indexIn(bucket, element);
+			if (i == -1) {
+				return false;
+			}
+			Object[] copy = bucket.length == 1 ? EMPTY : new Object[bucket.length - 1];
+			System.arraycopy(bucket, 0, copy, 0, i);
+			System.arraycopy(bucket, i + 1, copy, i, bucket.length - i - 1);
+			buckets.set(b, copy);
+			numElements.decrement();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Clears the table
+	 */
+	public void clear() {
+		lockAll();
+		try {
+			table = newTable(table.length());
+			numElements.reset();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Doubles the table if the load factor is over the max. Every stripe is locked
+	 * while the buckets are rehashed; readers keep using the old table until the
+	 * new one is published
+	 */
+	private void growIfNeeded() {
+		if (getLoadFactor() <= MAX_LOAD_FACTOR) {
+			return;
+		}
+		lockAll();
+		try {
+			AtomicReferenceArray<Object[]> oldTable = table;
+			if (numElements.sum() <= oldTable.length() * MAX_LOAD_FACTOR) {
+				return; // another thread already grew it
+			}
+			AtomicReferenceArray<Object[]> newTable = newTable(oldTable.length() * 2);
+			int mask = newTable.length() - 1;
+			for (int i = 0; i < oldTable.length(); i++) {
+				for (Object element : oldTable.get(i)) {
+					int b = hash(element) & mask;
+					Object[] bucket = newTable.get(b);
+					Object[] copy = new Object[bucket.length + 1];
+					System.arraycopy(bucket, 0, copy, 0, bucket.length);
+					copy[bucket.length] = element;
+					newTable.set(b, copy);
+				}
+			}
+			table = newTable;
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Acquires every stripe lock, always in the same order
+	 */
+	private void lockAll() {
+		for (ReentrantLock lock : locks) {
+			lock.lock();
+		}
+	}
+
+	/**
+	 * Releases every stripe lock
+	 */
+	private void unlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--) {
+			locks[i].unlock();
+		}
+	}
+
+	/* Additional Methods */
+	/**
+	 * A toString override for the table
+	 * 
+	 * @return all elements in a string separated by spaces, ending with a newline
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (T element : getAllElements()) {
+			result.append(element).append(" ");
+		}
+		return result.toString() + "\n";
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * ElementTable.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * The operations shared by the hash table implementations, so callers such as
+ * SearchEngine can choose one without depending on how it stores elements
+ * @param <T> the type of elements stored in the table
+ */
+public interface ElementTable<T> {
+	/**
+	 * Returns num of elements
+	 * 
+	 * @return num of elements
+	 */
+	int getNumElements();
+
+	/**
+	 * Returns load factor: numElements / capacity
+	 * 
+	 * @return load factor
+	 */
+	double getLoadFactor();
+
+	/**
+	 * Checks if the table contains an element
+	 * 
+	 * @param element the element to check
+	 * @return if it contains the element
+	 */
+	boolean contains(T element);
+
+	/**
+	 * Checks if an element exists in table or not
+	 * 
+	 * @param element the element to check for
+	 * @return the bucket or slot of the element or -1 if it doesn't exist
+	 * @throws NullPointerException element is null
+	 */
+	int find(T element) throws NullPointerException;
+
+	/**
+	 * Gets the element if it exists
+	 * 
+	 * @param element the element to check for
+	 * @return the element if it exists, null if not
+	 * @throws NullPointerException if element is null
+	 */
+	T get(T element) throws NullPointerException;
+
+	/**
+	 * Gets all the elements and add them into an ArrayList
+	 * 
+	 * @return an arrayList of elements
+	 */
+	ArrayList<T> getAllElements();
+
+	/**
+	 * Adds an element to the table
+	 * 
+	 * @param element the element to add
+	 * @throws NullPointerException element is null
+	 */
+	void add(T element) throws NullPointerException;
+
+	/**
+	 * Returns the element equal to the given key, first adding the element the
+	 * creator makes from the key if there is none, in a single lookup; like
+	 * Map.computeIfAbsent, nothing is created when the key is found
+	 * 
+	 * @param key     the element to look up
+	 * @param creator makes the element to add from the key; it must equal key
+	 * @return the stored element equal to key
+	 * @throws NullPointerException key or the created element is null
+	 */
+	T getOrAdd(T key, Function<? super T, ? extends T> creator) throws NullPointerException;
+
+	/**
+	 * Deletes an element from the table
+	 * 
+	 * @param element the element to delete
+	 * @return if element deleted or not
+	 * @throws NullPointerException if element is null
+	 */
+	boolean delete(T element) throws NullPointerException;
+
+	/**
+	 * Clears the table
+	 */
+	void clear();
+}
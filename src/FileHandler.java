@@ -3,9 +3,22 @@
  * @author Stephen Kyker
  * CIS 22C, Final Project
  */
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 /**
  * Handles logic related to file input operations. Implements
@@ -69,6 +82,119 @@ public class FileHandler implements AutoCloseable {
 		return rawData.toString();
 	}
 
+	/**
+	 * Streams the songs held in a directory, one file at a time, instead of
+	 * loading every file into one String; files are matched by prefix and suffix
+	 * as in readDir and visited in the same order. Only the matching file names
+	 * are listed up front, and each file is read when the stream reaches it, so
+	 * at most one file's text is held in memory. Each file holds a song's title,
+	 * year and album on the first three lines, then its lyrics; a file that can't
+	 * be read or parsed stops the stream with an UncheckedIOException
+	 *
+	 * @param dirPath    the relative path to the data, e.g., "./data/"
+	 * @param filePrefix the prefix of the file name, e.g., "song"
+	 * @param fileSuffix the suffix of the file name, e.g., ".txt"
+	 * @throws IOException if the directory cannot be listed or holds no matching
+	 *                     files
+	 * @return a lazy stream of the songs, in natural order by file name
+	 */
+	public Stream<Song> streamSongs(String dirPath, String filePrefix, String fileSuffix)
+		throws IOException {
+
+		return streamSongs(dirPath, filePrefix, fileSuffix, true);
+	}
+
+	/**
+	 * Streams the songs held in a directory as streamSongs(dirPath, filePrefix,
+	 * fileSuffix) does, optionally skipping the sort when the order of the songs
+	 * doesn't matter, e.g. when they are only indexed; unsorted songs come in
+	 * the order the directory lists them
+	 *
+	 * @param dirPath    the relative path to the data, e.g., "./data/"
+	 * @param filePrefix the prefix of the file name, e.g., "song"
+	 * @param fileSuffix the suffix of the file name, e.g., ".txt"
+	 * @param sorted     whether to visit the files in natural order by name
+	 * @throws IOException if the directory cannot be listed or holds no matching
+	 *                     files
+	 * @return a lazy stream of the songs
+	 */
+	public Stream<Song> streamSongs(String dirPath, String filePrefix, String fileSuffix,
+		boolean sorted) throws IOException {
+
+		Path dir = Paths.get(dirPath);
+		if (!Files.isDirectory(dir)) {
+			throw new FileNotFoundException(String.format(
+				"streamSongs(): %s is not a directory or cannot be accessed.%n", dirPath));
+		}
+
+		// List the matching files without opening them
+		ArrayList<File> matches = new ArrayList<>();
+		DirectoryStream.Filter<Path> filter = path -> {
+			String fileName = path.getFileName().toString();
+			return fileName.startsWith(filePrefix) && fileName.endsWith(fileSuffix)
+				&& Files.isRegularFile(path);
+		};
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir, filter)) {
+			for (Path entry : entries) {
+				matches.add(entry.toFile());
+			}
+		}
+		if (matches.isEmpty()) {
+			throw new FileNotFoundException(String.format(
+				"streamSongs(): No files found in %s or the files are inaccessible for reading.%n"
+				+ "  Failed Pattern Match: %s*%s%n",
+				dirPath, filePrefix, fileSuffix));
+		}
+
+		File[] files = matches.toArray(new File[0]);
+		if (sorted) {
+			this.sortFilesByName(files);
+		}
+
+		return Arrays.stream(files).map(file -> {
+			try {
+				return readSong(file.toPath());
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		});
+	}
+
+	/**
+	 * Reads a song from a file holding its title, year and album on the first
+	 * three lines, then its lyrics; lyrics spanning several lines are joined with
+	 * spaces
+	 *
+	 * @param path the file to read
+	 * @return the song
+	 * @throws FileNotFoundException if the file cannot be found or opened
+	 * @throws IOException           if the file cannot be read or is not a song
+	 */
+	public Song readSong(Path path) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(path, Charset.defaultCharset())) {
+			String title = reader.readLine();
+			String year = reader.readLine();
+			String album = reader.readLine();
+			String line = reader.readLine();
+			if (title == null || year == null || album == null || line == null) {
+				throw new IOException("missing title, year, album or lyrics");
+			}
+			StringBuilder lyrics = new StringBuilder(line);
+			while ((line = reader.readLine()) != null) {
+				lyrics.append(' ').append(line);
+			}
+			return new Song(title, Integer.parseInt(year.trim()), album, lyrics.toString());
+		} catch (NoSuchFileException | AccessDeniedException e) {
+			throw new FileNotFoundException(String.format(
+				"readSong(): %s cannot be found or is inaccessible for reading.%n"
+				+ "  Exception: %s%n", path, e.getMessage()));
+		} catch (IOException | NumberFormatException e) {
+			throw new IOException(String.format(
+				"readSong(): %s cannot be read as a song.%n"
+				+ "  Exception: %s%n", path, e.getMessage()), e);
+		}
+	}
+
 	/**
 	 * Reads all the data in a file
 	 *
@@ -94,8 +220,10 @@ public class FileHandler implements AutoCloseable {
 	}
 
 	/**
-	 * Insertion sorts a list of files by name; Sorts in natural ascending order by
-	 * file name
+	 * Sorts a list of files in natural ascending order by file name, in
+	 * O(n log n) time; nulls are moved to the end. Each name is split into its
+	 * text and number runs once, and the sort compares those cached keys, so no
+	 * name is re-parsed per comparison
 	 *
 	 * @param files the files to sort
 	 * @throws NullPointerException if file list is null or empty
@@ -106,32 +234,34 @@ public class FileHandler implements AutoCloseable {
 			throw new NullPointerException("sortFilesByName(): The files list is null or empty.");
 		}
 
-		// Simple insertion sort
-		// (not worrying about maximum efficiency here as we only have
-		// a handful of files to process for this project)
-		for (int i = 1; i < files.length; i++) {
-			File curFile = files[i];
-			int j = i;
-
-			while (j > 0 && compareByName(files[j - 1], curFile) > 0) {
-				files[j] = files[j - 1];
-				j--;
+		// Parse each name once
+		NaturalOrderKey[] keys = new NaturalOrderKey[files.length];
+		int count = 0;
+		for (File file : files) {
+			if (file != null) {
+				keys[count++] = new NaturalOrderKey(file);
 			}
+		}
 
-			files[j] = curFile;
+		// Merge sort the keys, then write the files back in order
+		// with the nulls at the end
+		Arrays.sort(keys, 0, count);
+		for (int i = 0; i < files.length; i++) {
+			files[i] = i < count ? keys[i].getFile() : null;
 		}
 	}
 
 	/**
-	 * Compares two files by name length, and then lexicographically by file name if
-	 * needed (e.g., song2.txt should come before song10.txt); Note that nulls are
-	 * moved to the end of a list if calling this to perform a sort, additionally
-	 * this method also assumes that the files will only differ at the numeric
-	 * identifier between the file prefix and suffix.
+	 * Compares two files in natural order by name: runs of digits are compared by
+	 * their numeric value and the text in between character by character (e.g.,
+	 * song2.txt comes before song10.txt, and track9b.txt before track10a.txt);
+	 * Note that nulls are moved to the end of a list if calling this to perform
+	 * a sort
 	 *
 	 * @param file1 the first file to compare
 	 * @param file2 the second file to compare
-	 * @return 0 if equal, 1 if file1 &gt; file2, and -1 if file1 &lt; file2
+	 * @return 0 if equal, a positive number if file1 &gt; file2, and a negative
+	 *         number if file1 &lt; file2
 	 */
 	public int compareByName(File file1, File file2) {
 		// Null check
@@ -143,22 +273,7 @@ public class FileHandler implements AutoCloseable {
 			return -1;
 		}
 
-		// Get the file names and file name lengths
-		String name1 = file1.getName();
-		String name2 = file2.getName();
-		int length1 = name1.length();
-		int length2 = name2.length();
-
-		// Compare length first;
-		// E.g., song10.txt would incorrectly be calculated
-		// as less than song2.txt in a simple lexicographical sort
-		if (length1 != length2) {
-			return Integer.compare(length1, length2);
-		}
-
-		// Compare lexicographically,
-		// if they are the same length
-		return name1.compareTo(name2);
+		return new NaturalOrderKey(file1).compareTo(new NaturalOrderKey(file2));
 	}
 
 	/**
@@ -169,3 +284,109 @@ public class FileHandler implements AutoCloseable {
 		// No cleanup required
 	}
 }
+
+/**
+ * A file paired with its name split into alternating runs of text and digits,
+ * parsed once so a sort can compare names in natural order without re-reading
+ * them. Number runs are kept without their leading zeros, so they compare by
+ * length and then digit by digit, which matches their numeric value at any
+ * length
+ */
+class NaturalOrderKey implements Comparable<NaturalOrderKey> {
+	/**
+	 * The file being sorted
+	 */
+	private final File file;
+	/**
+	 * The file name, used to break ties, e.g. between song01 and song1
+	 */
+	private final String name;
+	/**
+	 * The runs of the name in order; number runs have no leading zeros
+	 */
+	private final String[] runs;
+	/**
+	 * Whether each run is a number
+	 */
+	private final boolean[] isNumber;
+
+	/**
+	 * Constructor that splits a file's name into runs
+	 *
+	 * @param file the file to sort
+	 */
+	public NaturalOrderKey(File file) {
+		this.file = file;
+		this.name = file.getName();
+
+		ArrayList<String> parts = new ArrayList<>();
+		int start = 0;
+		while (start < name.length()) {
+			boolean digits = Character.isDigit(name.charAt(start));
+			int end = start + 1;
+			while (end < name.length() && Character.isDigit(name.charAt(end)) == digits) {
+				end++;
+			}
+			if (digits) {
+				// Strip leading zeros, keeping a single 0
+				int first = start;
+				while (first < end - 1 && name.charAt(first) == '0') {
+					first++;
+				}
+				parts.add(name.substring(first, end));
+			} else {
+				parts.add(name.substring(start, end));
+			}
+			start = end;
+		}
+
+		this.runs = parts.toArray(new String[0]);
+		this.isNumber = new boolean[runs.length];
+		for (int i = 0; i < runs.length; i++) {
+			this.isNumber[i] = Character.isDigit(runs[i].charAt(0));
+		}
+	}
+
+	/**
+	 * Returns the file being sorted
+	 *
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Compares two names run by run: numbers by value, text lexicographically, and
+	 * a number before text; if every run ties, the shorter name and then the
+	 * plain String order decide
+	 *
+	 * @param other the key to compare to
+	 * @return 0 if equal, a positive number if this &gt; other, and a negative
+	 *         number if this &lt; other
+	 */
+	@Override
+	public int compareTo(NaturalOrderKey other) {
+		int length = Math.min(runs.length, other.runs.length);
+		for (int i = 0; i < length; i++) {
+			int result;
+			if (isNumber[i] && other.isNumber[i]) {
+				result = Integer.compare(runs[i].length(), other.runs[i].length());
+				if (result == 0) {
+					result = runs[i].compareTo(other.runs[i]);
+				}
+			} else if (isNumber[i] != other.isNumber[i]) {
+				result = isNumber[i] ? -1 : 1;
+			} else {
+				result = runs[i].compareTo(other.runs[i]);
+			}
+			if (result != 0) {
+				return result;
+			}
+		}
+		if (runs.length != other.runs.length) {
+			return Integer.compare(runs.length, other.runs.length);
+		}
+		return name.compareTo(other.name);
+	}
+}
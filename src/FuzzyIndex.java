@@ -0,0 +1,242 @@
+/**
+ * FuzzyIndex.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Finds the words of a dictionary within a small edit distance of a query
+ * without comparing the query to every word. Each word is filed under every
+ * string left by deleting up to maxDistance of its characters (symmetric
+ * delete). Two words within edit distance d always share such a string with
+ * at most d deletes from each, so a lookup only has to generate the query's
+ * own deletes and check the words filed under them.
+ */
+public class FuzzyIndex {
+	/**
+	 * The words found by a lookup, with how much work it took
+	 */
+	public static class Result {
+		/**
+		 * The dictionary words within the distance
+		 */
+		private final ArrayList<String> words;
+		/**
+		 * The number of distinct dictionary words whose distance was checked
+		 */
+		private final int candidateCount;
+		/**
+		 * The time the lookup took
+		 */
+		private final long nanos;
+
+		/**
+		 * Constructor that sets the results of a lookup
+		 * 
+		 * @param words          the matching words
+		 * @param candidateCount the number of words checked
+		 * @param nanos          the time taken in nanoseconds
+		 */
+		public Result(ArrayList<String> words, int candidateCount, long nanos) {
+			this.words = words;
+			this.candidateCount = candidateCount;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Returns the matching words
+		 * 
+		 * @return the dictionary words within the distance
+		 */
+		public ArrayList<String> getWords() {
+			return words;
+		}
+
+		/**
+		 * Returns the number of candidates checked
+		 * 
+		 * @return the number of distinct words whose distance was checked
+		 */
+		public int getCandidateCount() {
+			return candidateCount;
+		}
+
+		/**
+		 * Returns the time taken
+		 * 
+		 * @return the time the lookup took in nanoseconds
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+	}
+
+	/**
+	 * The most edits a lookup can allow
+	 */
+	private final int maxDistance;
+	/**
+	 * Maps each delete string to the words it was made from
+	 */
+	private final HashMap<String, ArrayList<String>> deletes;
+
+	/* Constructors */
+	/**
+	 * Constructor that takes in the most edits a lookup can allow
+	 * 
+	 * @param maxDistance the largest edit distance to index for
+	 * @throws IllegalArgumentException if maxDistance &lt; 0
+	 */
+	public FuzzyIndex(int maxDistance) throws IllegalArgumentException {
+		if (maxDistance < 0) {
+			throw new IllegalArgumentException("FuzzyIndex(maxDistance): maxDistance is < 0");
+		}
+		this.maxDistance = maxDistance;
+		this.deletes = new HashMap<>();
+	}
+
+	/* Accessors */
+	/**
+	 * Returns the largest edit distance a lookup can allow
+	 * 
+	 * @return the max distance
+	 */
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * Returns the dictionary words within an edit distance of the query, in no
+	 * particular order
+	 * 
+	 * @param query    the word to match
+	 * @param distance the most insertions, deletions and substitutions allowed
+	 * @return the matching words and the work done
+	 * @throws IllegalArgumentException if distance is &lt; 0 or over the max
+	 */
+	public Result lookup(String query, int distance) throws IllegalArgumentException {
+		if (distance < 0 || distance > maxDistance) {
+			throw new IllegalArgumentException("lookup: distance is outside 0.." + maxDistance);
+		}
+		long start = System.nanoTime();
+		HashSet<String> checked = new HashSet<>();
+		ArrayList<String> words = new ArrayList<>();
+		for (String key : deletesOf(query, distance)) {
+			ArrayList<String> filed = deletes.get(key);
+			if (filed == null) {
+				continue;
+			}
+			for (String word : filed) {
+				if (checked.add(word) && editDistance(query, word, distance) <= distance) {
+					words.add(word);
+				}
+			}
+		}
+		return new Result(words, checked.size(), System.nanoTime() - start);
+	}
+
+	/* Mutators */
+	/**
+	 * Adds a word to the dictionary; it must not already be in it
+	 * 
+	 * @param word the word to add
+	 */
+	public void add(String word) {
+		for (String key : deletesOf(word, maxDistance)) {
+			ArrayList<String> filed = deletes.get(key);
+			if (filed == null) {
+				filed = new ArrayList<>(1);
+				deletes.put(key, filed);
+			}
+			filed.add(word);
+		}
+	}
+
+	/**
+	 * Removes a word from the dictionary
+	 * 
+	 * @param word the word to remove
+	 */
+	public void remove(String word) {
+		for (String key : deletesOf(word, maxDistance)) {
+			ArrayList<String> filed = deletes.get(key);
+			if (filed != null && filed.remove(word) && filed.isEmpty()) {
+				deletes.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Clears the dictionary
+	 */
+	public void clear() {
+		deletes.clear();
+	}
+
+	/* Additional Methods */
+	/**
+	 * Returns every distinct string left by deleting up to count characters of a
+	 * word, including the word itself
+	 * 
+	 * @param word  the word
+	 * @param count the most characters to delete
+	 * @return the delete strings
+	 */
+	private static HashSet<String> deletesOf(String word, int count) {
+		HashSet<String> result = new HashSet<>();
+		result.add(word);
+		ArrayList<String> level = new ArrayList<>();
+		level.add(word);
+		for (int d = 0; d < count; d++) {
+			ArrayList<String> next = new ArrayList<>();
+			for (String s : level) {
+				for (int i = 0; i < s.length(); i++) {
+					String shorter = s.substring(0, i) + s.substring(i + 1);
+					if (result.add(shorter)) {
+						next.add(shorter);
+					}
+				}
+			}
+			level = next;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the Levenshtein distance between two words, giving up once it is
+	 * certain to be over the limit
+	 * 
+	 * @param a     the first word
+	 * @param b     the second word
+	 * @param limit the largest distance of interest
+	 * @return the distance, or limit + 1 if it is over the limit
+	 */
+	private static int editDistance(String a, String b, int limit) {
+		if (Math.abs(a.length() - b.length()) > limit) {
+			return limit + 1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = i;
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > limit) {
+				return limit + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[b.length()], limit + 1);
+	}
+}
@@ -4,12 +4,24 @@
  * CIS 22C, Final Project
  */
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.Function;
 
 /**
  * Generic HashTable class implementation
  * @param <T> the type of elements stored in the HashTable
  */
-public class HashTable<T> {
+public class HashTable<T> implements ElementTable<T> {
+	/**
+	 * The load factor past which the table starts growing, unless another one is
+	 * given to the constructor
+	 */
+	public static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+	/**
+	 * How many old buckets are moved into the new table per add/delete while a
+	 * resize is in progress
+	 */
+	private static final int MIGRATION_STEP = 4;
 	/**
 	 * The number of elements stored in the HashTable
 	 */
@@ -18,6 +30,18 @@ public class HashTable<T> {
 	 * The data table
 	 */
 	private ArrayList<LinkedList<T>> table;
+	/**
+	 * The table being drained into table during a resize, null if not resizing
+	 */
+	private ArrayList<LinkedList<T>> oldTable;
+	/**
+	 * The next bucket of oldTable to migrate; buckets below it are already moved
+	 */
+	private int migrateIndex;
+	/**
+	 * The load factor that triggers a resize
+	 */
+	private double maxLoadFactor;
 
 	/* Constructors */
 	/**
@@ -27,13 +51,28 @@ public class HashTable<T> {
 	 * @throws IllegalArgumentException if size &lt;= 0
 	 */
 	public HashTable(int size) throws IllegalArgumentException {
+		this(size, DEFAULT_MAX_LOAD_FACTOR);
+	}
+
+	/**
+	 * Constructor that takes in a size to make the table and the load factor past
+	 * which the table grows
+	 * 
+	 * @param size          size of table
+	 * @param maxLoadFactor the load factor that triggers a resize
+	 * @throws IllegalArgumentException if size &lt;= 0 or maxLoadFactor &lt;= 0
+	 */
+	public HashTable(int size, double maxLoadFactor) throws IllegalArgumentException {
 		if (size <= 0) {
 			throw new IllegalArgumentException("HashTable(size): size is <= 0");
 		}
-		table = new ArrayList<>(size);
-		for (int i = 0; i < size; i++) {
-			table.add(new LinkedList<T>());
+		if (!(maxLoadFactor > 0)) {
+			throw new IllegalArgumentException("HashTable(size, maxLoadFactor): maxLoadFactor is <= 0");
 		}
+		table = newTable(size);
+		oldTable = null;
+		migrateIndex = 0;
+		this.maxLoadFactor = maxLoadFactor;
 		numElements = 0;
 	}
 
@@ -62,7 +101,49 @@ public class HashTable<T> {
 	 * @return the hash
 	 */
 	private int hash(T obj) {
-		return Math.abs(obj.hashCode() % table.size());
+		return hash(obj, table.size());
+	}
+
+	/**
+	 * Gets the hash code of the object for a table of the given size
+	 * 
+	 * @param obj  the object to hash
+	 * @param size the number of buckets
+	 * @return the hash
+	 */
+	private int hash(T obj, int size) {
+		return Math.abs(obj.hashCode() % size);
+	}
+
+	/**
+	 * Creates a table of empty buckets
+	 * 
+	 * @param size the number of buckets
+	 * @return the new table
+	 */
+	private ArrayList<LinkedList<T>> newTable(int size) {
+		ArrayList<LinkedList<T>> buckets = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			buckets.add(new LinkedList<T>());
+		}
+		return buckets;
+	}
+
+	/**
+	 * Returns the bucket that currently holds the element, looking in the old table
+	 * if a resize is in progress and the element's old bucket hasn't moved yet
+	 * 
+	 * @param element the element to locate
+	 * @return the list the element is (or would be) stored in
+	 */
+	private LinkedList<T> bucketOf(T element) {
+		if (oldTable != null) {
+			int oldBucket = hash(element, oldTable.size());
+			if (oldBucket >= migrateIndex) {
+				return oldTable.get(oldBucket);
+			}
+		}
+		return table.get(hash(element));
 	}
 
 	/* Accessors */
@@ -83,6 +164,7 @@ public class HashTable<T> {
 	 * @throws IndexOutOfBoundsException if bucket &lt; 0 or bucket &gt;= table.size
 	 */
 	public int countBucket(int bucket) throws IndexOutOfBoundsException {
+		finishResize();
 		if (bucket < 0 || bucket >= table.size()) {
 			throw new IndexOutOfBoundsException("countBucket: bucket is out of bounds!");
 		}
@@ -96,7 +178,7 @@ public class HashTable<T> {
 	 * @return if it contains the element
 	 */
 	public boolean contains(T element) {
-		return find(element) != -1;
+		return get(element) != null;
 	}
 
 	/**
@@ -109,7 +191,35 @@ public class HashTable<T> {
 	}
 
 	/**
-	 * Checks if an element exists in table or not
+	 * Returns the load factor past which the table grows
+	 * 
+	 * @return the max load factor
+	 */
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Returns the number of buckets in the table
+	 * 
+	 * @return the number of buckets
+	 */
+	public int getNumBuckets() {
+		return table.size();
+	}
+
+	/**
+	 * Returns whether buckets are still being moved into a bigger table
+	 * 
+	 * @return if a resize is in progress
+	 */
+	public boolean isResizing() {
+		return oldTable != null;
+	}
+
+	/**
+	 * Checks if an element exists in table or not; while a resize is in progress
+	 * the returned bucket is the one the element has in the new table
 	 * 
 	 * @param element the element to check for
 	 * @return the bucket of the element or -1 if it doesn't exist
@@ -119,20 +229,7 @@ public class HashTable<T> {
 		if (element == null) {
 			throw new NullPointerException("find: element is null!");
 		}
-		int bucket = hash(element);
-		LinkedList<T> linkedList = table.get(bucket);
-		linkedList.positionIterator();
-		while (!linkedList.offEnd()) {
-			if (linkedList.getIterator().equals(element)) {
-				return bucket;
-			}
-			linkedList.advanceIterator();
-		}
-		// if (!table.get(bucket).isEmpty() &&
-		// table.get(bucket).getFirst().equals(element)){
-		// return bucket;
-		// }
-		return -1;
+		return search(bucketOf(element), element) == null ? -1 : hash(element);
 	}
 
 	/**
@@ -146,17 +243,22 @@ public class HashTable<T> {
 		if (element == null) {
 			throw new NullPointerException("get: element is null!");
 		}
-		if (find(element) == -1) {
-			return null;
-		}
-		int bucket = hash(element);
-		LinkedList<T> linkedList = table.get(bucket);
-		linkedList.positionIterator();
-		while (!linkedList.offEnd()) {
-			if (linkedList.getIterator().equals(element)) {
-				return linkedList.getIterator();
+		return search(bucketOf(element), element);
+	}
+
+	/**
+	 * Walks a bucket for an element; uses its own iterator rather than the
+	 * bucket's shared one, so concurrent readers don't disturb each other
+	 * 
+	 * @param bucket  the bucket to walk
+	 * @param element the element to look for
+	 * @return the stored element equal to element, or null if there is none
+	 */
+	private T search(LinkedList<T> bucket, T element) {
+		for (T stored : bucket) {
+			if (stored.equals(element)) {
+				return stored;
 			}
-			linkedList.advanceIterator();
 		}
 		return null;
 	}
@@ -169,16 +271,29 @@ public class HashTable<T> {
 	 */
 	public ArrayList<T> getAllElements() {
 		ArrayList<T> elements = new ArrayList<>();
-		for (LinkedList<T> bucket : table) {
-			bucket.positionIterator();
-			while (!bucket.offEnd()) {
-				elements.add(bucket.getIterator());
-				bucket.advanceIterator();
+		if (oldTable != null) {
+			for (int i = migrateIndex; i < oldTable.size(); i++) {
+				addAll(oldTable.get(i), elements);
 			}
 		}
+		for (LinkedList<T> bucket : table) {
+			addAll(bucket, elements);
+		}
 		return elements;
 	}
 
+	/**
+	 * Appends every element of a bucket to a list
+	 * 
+	 * @param bucket   the bucket to read
+	 * @param elements the list to add to
+	 */
+	private void addAll(LinkedList<T> bucket, ArrayList<T> elements) {
+		for (T element : bucket) {
+			elements.add(element);
+		}
+	}
+
 	/* Mutators */
 	/**
 	 * Adds an element to the list
@@ -190,9 +305,51 @@ public class HashTable<T> {
 		if (element == null) {
 			throw new NullPointerException("add: element is null!");
 		}
-		int bucket = hash(element);
-		table.get(bucket).addLast(element);
+		migrate();
+		append(bucketOf(element), element);
+	}
+
+	/**
+	 * Returns the element equal to the given key, first adding the element the
+	 * creator makes from the key if there is none; the bucket is only walked
+	 * once either way
+	 * 
+	 * @param key     the element to look up
+	 * @param creator makes the element to add from the key; it must equal key
+	 * @return the stored element equal to key
+	 * @throws NullPointerException key or the created element is null
+	 */
+	public T getOrAdd(T key, Function<? super T, ? extends T> creator) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("getOrAdd: key is null!");
+		}
+		migrate();
+		LinkedList<T> linkedList = bucketOf(key);
+		T stored = search(linkedList, key);
+		if (stored != null) {
+			return stored;
+		}
+		T element = creator.apply(key);
+		if (element == null) {
+			throw new NullPointerException("getOrAdd: created element is null!");
+		}
+		append(linkedList, element);
+		return element;
+	}
+
+	/**
+	 * Adds an element to the end of its bucket and starts a resize if that pushes
+	 * the load factor over the max
+	 * 
+	 * @param bucket  the bucket the element hashes to
+	 * @param element the element to add
+	 */
+	private void append(LinkedList<T> bucket, T element) {
+		bucket.addLast(element);
 		numElements++;
+		if (oldTable == null && getLoadFactor() > maxLoadFactor) {
+			startResize();
+		}
 	}
 
 	/**
@@ -206,16 +363,14 @@ public class HashTable<T> {
 		if (element == null) {
 			throw new NullPointerException("delete: element is null!");
 		}
-		int hash = hash(element);
-		LinkedList<T> list = table.get(hash);
-		list.positionIterator();
-		while (!list.offEnd()) {
-			if (list.getIterator().equals(element)) {
-				list.removeIterator();
+		migrate();
+		Iterator<T> it = bucketOf(element).iterator();
+		while (it.hasNext()) {
+			if (it.next().equals(element)) {
+				it.remove();
 				numElements--;
 				return true;
 			}
-			list.advanceIterator();
 		}
 		return false;
 	}
@@ -225,11 +380,55 @@ public class HashTable<T> {
 	 */
 	public void clear() {
 		numElements = 0;
+		oldTable = null;
+		migrateIndex = 0;
 		for (int i = 0; i < table.size(); i++) {
 			table.set(i, new LinkedList<T>());
 		}
 	}
 
+	/**
+	 * Begins moving the elements into a table twice the size; the buckets are moved
+	 * a few at a time by migrate() on each add/delete so no single add has to
+	 * rehash everything
+	 */
+	private void startResize() {
+		oldTable = table;
+		table = newTable(oldTable.size() * 2);
+		migrateIndex = 0;
+	}
+
+	/**
+	 * Moves the next few buckets of the old table into the new one, if a resize is
+	 * in progress; only called by the mutators so reads never change the table
+	 */
+	private void migrate() {
+		if (oldTable == null) {
+			return;
+		}
+		int end = Math.min(migrateIndex + MIGRATION_STEP, oldTable.size());
+		for (; migrateIndex < end; migrateIndex++) {
+			for (T element : oldTable.get(migrateIndex)) {
+				table.get(hash(element)).addLast(element);
+			}
+			oldTable.set(migrateIndex, null);
+		}
+		if (migrateIndex == oldTable.size()) {
+			oldTable = null;
+			migrateIndex = 0;
+		}
+	}
+
+	/**
+	 * Moves every remaining bucket of the old table, for operations that work on
+	 * bucket numbers and need a single table
+	 */
+	private void finishResize() {
+		while (oldTable != null) {
+			migrate();
+		}
+	}
+
 	/* Additional Methods */
 	/**
 	 * Returns the buckets contents as a string
@@ -239,6 +438,7 @@ public class HashTable<T> {
 	 * @throws IndexOutOfBoundsException bucket &lt; 0 or bucket &gt;= table.size
 	 */
 	public String bucketToString(int bucket) throws IndexOutOfBoundsException {
+		finishResize();
 		if (bucket < 0 || bucket >= table.size()) {
 			throw new IndexOutOfBoundsException("bucketToString: bucket is out of bounds!");
 		}
@@ -251,6 +451,7 @@ public class HashTable<T> {
 	 * @return the string of the bucket number: first element in row
 	 */
 	public String rowToString() {
+		finishResize();
 		String returnString = "";
 		for (int i = 0; i < table.size(); i++) {
 			returnString += "Bucket " + i + ": ";
@@ -270,6 +471,7 @@ public class HashTable<T> {
 	 * @return all elements in a string with newlines
 	 */
 	public String toString() {
+		finishResize();
 		String returnString = "";
 		for (int i = 0; i < table.size(); i++) {
 			if (!table.get(i).isEmpty()) {
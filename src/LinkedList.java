@@ -3,13 +3,14 @@
  * @author Stephen Lin
  * CIS 22C, Final Project
  */
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
  * Generic LinkedList class implementation
  * @param <T> the type of elements stored in the LinkedList
  */
-public class LinkedList<T> {
+public class LinkedList<T> implements Iterable<T> {
 	/**
 	 * Node class implementation
 	 */
@@ -37,6 +38,70 @@ public class LinkedList<T> {
 		}
 	}
 
+	/**
+	 * Iterator over the list that keeps its own position, unlike the list's shared
+	 * iterator node, so any number of them can walk the list at once
+	 */
+	private class NodeIterator implements Iterator<T> {
+		/**
+		 * The node whose data next() returns
+		 */
+		private Node next;
+		/**
+		 * The node last returned by next(), null if remove() isn't allowed
+		 */
+		private Node lastReturned;
+
+		/**
+		 * Constructs an iterator positioned at the first node
+		 */
+		public NodeIterator() {
+			next = first;
+			lastReturned = null;
+		}
+
+		/**
+		 * Returns whether there are nodes left to visit
+		 * 
+		 * @return whether next() has data to return
+		 */
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		/**
+		 * Returns the data of the next node and moves past it
+		 * 
+		 * @return the next node's data
+		 * @throws NoSuchElementException if there are no nodes left
+		 */
+		@Override
+		public T next() throws NoSuchElementException {
+			if (next == null) {
+				throw new NoSuchElementException("next: no nodes left!");
+			}
+			lastReturned = next;
+			next = next.next;
+			return lastReturned.data;
+		}
+
+		/**
+		 * Removes the node last returned by next()
+		 * 
+		 * @throws IllegalStateException if next() hasn't been called since the last
+		 *                               remove()
+		 */
+		@Override
+		public void remove() throws IllegalStateException {
+			if (lastReturned == null) {
+				throw new IllegalStateException("remove: next() has not been called!");
+			}
+			unlink(lastReturned);
+			lastReturned = null;
+		}
+	}
+
 	/**
 	 * The length of the list
 	 */
@@ -249,6 +314,8 @@ public class LinkedList<T> {
 			first = first.next;
 			if (first != null) {
 				first.prev = null;
+			} else {
+				last = null;
 			}
 		}
 		length--;
@@ -275,6 +342,26 @@ public class LinkedList<T> {
 		length--;
 	}
 
+	/**
+	 * Removes the given node from the list, keeping first and last up to date
+	 * 
+	 * @param node the node to remove
+	 */
+	private void unlink(Node node) {
+		if (node == first) {
+			removeFirst();
+		} else if (node == last) {
+			removeLast();
+		} else {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			length--;
+		}
+		if (node == iterator) {
+			iterator = null;
+		}
+	}
+
 	/**
 	 * removes the element referenced by the iterator
 	 * 
@@ -286,16 +373,7 @@ public class LinkedList<T> {
 		if (offEnd()) {
 			throw new NullPointerException("removeIterator: iterator is null!");
 		}
-		if (iterator == first) {
-			removeFirst();
-		} else if (iterator == last) {
-			removeLast();
-		} else {
-			iterator.prev.next = iterator.next;
-			iterator.next.prev = iterator.prev;
-			length--;
-		}
-		iterator = null;
+		unlink(iterator);
 	}
 
 	/**
@@ -337,6 +415,17 @@ public class LinkedList<T> {
 
 	/**** ADDITIONAL OPERATIONS ****/
 
+	/**
+	 * Returns a new iterator from the first node to the last. It does not use or
+	 * move the list's own iterator, so several can be used at the same time
+	 * 
+	 * @return an iterator over the list's data
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new NodeIterator();
+	}
+
 	/**
 	 * Re-sets LinkedList to empty as if the default constructor had just been
 	 * called
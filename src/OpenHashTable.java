@@ -0,0 +1,359 @@
+/**
+ * OpenHashTable.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * Open-addressing hash table with linear probing. Elements and their hash codes
+ * are kept in two flat parallel arrays instead of one LinkedList node per
+ * element, so a lookup scans neighbouring slots rather than following
+ * pointers. Deleted slots are marked with a tombstone and the arrays are
+ * compacted once live elements plus tombstones pass the max load factor.
+ * @param <T> the type of elements stored in the OpenHashTable
+ */
+public class OpenHashTable<T> implements ElementTable<T> {
+	/**
+	 * Marks a slot whose element was deleted; probing continues past it
+	 */
+	private static final Object TOMBSTONE = new Object();
+	/**
+	 * The fraction of used slots (live and deleted) past which the table is
+	 * rebuilt
+	 */
+	private static final double MAX_LOAD_FACTOR = 0.5;
+	/**
+	 * The number of elements stored in the table
+	 */
+	private int numElements;
+	/**
+	 * The number of tombstone slots
+	 */
+	private int numTombstones;
+	/**
+	 * The element slots; null is empty, TOMBSTONE is deleted
+	 */
+	private Object[] keys;
+	/**
+	 * The spread hash code of the element in the matching slot of keys
+	 */
+	private int[] hashes;
+
+	/* Constructors */
+	/**
+	 * Constructor that takes in the expected number of elements
+	 * 
+	 * @param size the number of elements the table should hold before growing
+	 * @throws IllegalArgumentException if size &lt;= 0
+	 */
+	public OpenHashTable(int size) throws IllegalArgumentException {
+		if (size <= 0) {
+			throw new IllegalArgumentException("OpenHashTable(size): size is <= 0");
+		}
+		allocate(capacityFor(size));
+	}
+
+	/**
+	 * Constructor that takes in a size and array to make the table
+	 * 
+	 * @param array the array to use
+	 * @param size  the number of elements the table should hold before growing
+	 * @throws IllegalArgumentException if size &lt;= 0
+	 */
+	public OpenHashTable(T[] array, int size) throws IllegalArgumentException {
+		this(size);
+		if (array == null) {
+			return;
+		}
+		for (int i = 0; i < array.length; i++) {
+			add(array[i]);
+		}
+	}
+
+	/**
+	 * Returns the smallest power of two that holds count elements under the max
+	 * load factor
+	 * 
+	 * @param count the number of elements
+	 * @return the capacity
+	 */
+	private static int capacityFor(int count) {
+		int capacity = 16;
+		while (capacity * MAX_LOAD_FACTOR < count) {
+			capacity *= 2;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Replaces the arrays with empty ones of the given capacity
+	 * 
+	 * @param capacity the number of slots, a power of two
+	 */
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		hashes = new int[capacity];
+		numElements = 0;
+		numTombstones = 0;
+	}
+
+	/**
+	 * Spreads the high bits of the hash code into the low bits used for the slot
+	 * 
+	 * @param obj the object to hash
+	 * @return the spread hash
+	 */
+	private static int hash(Object obj) {
+		int h = obj.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the slot holding an element equal to element
+	 * 
+	 * @param element the element to look for
+	 * @param h       the spread hash of element
+	 * @return the slot or -1 if it doesn't exist
+	 */
+	private int slotOf(T element, int h) {
+		int mask = keys.length - 1;
+		for (int i = h & mask;; i = (i + 1) & mask) {
+			Object key = keys[i];
+			if (key == null) {
+				return -1;
+			}
+			if (key != TOMBSTONE && hashes[i] == h && key.equals(element)) {
+				return i;
+			}
+		}
+	}
+
+	/* Accessors */
+	/**
+	 * Returns num of elements
+	 * 
+	 * @return num of elements
+	 */
+	public int getNumElements() {
+		return numElements;
+	}
+
+	/**
+	 * Returns load factor: numElements / number of slots
+	 * 
+	 * @return load factor
+	 */
+	public double getLoadFactor() {
+		return numElements * 1.0 / keys.length;
+	}
+
+	/**
+	 * Returns the number of slots in the table
+	 * 
+	 * @return the number of slots
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Checks if the table contains an element
+	 * 
+	 * @param element the element to check
+	 * @return if it contains the element
+	 */
+	public boolean contains(T element) {
+		return find(element) != -1;
+	}
+
+	/**
+	 * Checks if an element exists in table or not
+	 * 
+	 * @param element the element to check for
+	 * @return the slot of the element or -1 if it doesn't exist
+	 * @throws NullPointerException element is null
+	 */
+	public int find(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("find: element is null!");
+		}
+		return slotOf(element, hash(element));
+	}
+
+	/**
+	 * Gets the element if it exists
+	 * 
+	 * @param element the element to check for
+	 * @return the element if it exists, null if not
+	 * @throws NullPointerException if element is null
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in keys
+	public T get(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("get: element is null!");
+		}
+		int slot = slotOf(element, hash(element));
+		return slot == -1 ? null : (T) keys[slot];
+	}
+
+	/**
+	 * Gets all the elements and add them into an ArrayList
+	 * 
+	 * @return an arrayList of elements
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in keys
+	public ArrayList<T> getAllElements() {
+		ArrayList<T> elements = new ArrayList<>(numElements);
+		for (Object key : keys) {
+			if (key != null && key != TOMBSTONE) {
+				elements.add((T) key);
+			}
+		}
+		return elements;
+	}
+
+	/* Mutators */
+	/**
+	 * Adds an element to the table
+	 * 
+	 * @param element the element to add
+	 * @throws NullPointerException element is null
+	 */
+	public void add(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("add: element is null!");
+		}
+		if (numElements + numTombstones + 1 > keys.length * MAX_LOAD_FACTOR) {
+			rebuild();
+		}
+		insert(element, hash(element));
+	}
+
+	/**
+	 * Returns the element equal to the given key, first adding the element the
+	 * creator makes from the key if there is none; a missing element goes into
+	 * the first deleted slot seen on the probe, so the slots are only scanned
+	 * once
+	 * 
+	 * @param key     the element to look up
+	 * @param creator makes the element to add from the key; it must equal key
+	 * @return the stored element equal to key
+	 * @throws NullPointerException key or the created element is null
+	 */
+	@SuppressWarnings("unchecked") // only elements of type T are stored in keys
+	public T getOrAdd(T key, Function<? super T, ? extends T> creator) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("getOrAdd: key is null!");
+		}
+		if (numElements + numTombstones + 1 > keys.length * MAX_LOAD_FACTOR) {
+			rebuild();
+		}
+		int h = hash(key);
+		int mask = keys.length - 1;
+		int free = -1;
+		int i = h & mask;
+		for (Object stored = keys[i]; stored != null; i = (i + 1) & mask, stored = keys[i]) {
+			if (stored == TOMBSTONE) {
+				if (free == -1) {
+					free = i;
+				}
+			} else if (hashes[i] == h && stored.equals(key)) {
+				return (T) stored;
+			}
+		}
+		T element = creator.apply(key);
+		if (element == null) {
+			throw new NullPointerException("getOrAdd: created element is null!");
+		}
+		if (free == -1) {
+			free = i;
+		} else {
+			numTombstones--;
+		}
+		keys[free] = element;
+		hashes[free] = h;
+		numElements++;
+		return element;
+	}
+
+	/**
+	 * Places an element into the first free or deleted slot of its probe sequence
+	 * 
+	 * @param element the element to place
+	 * @param h       the spread hash of element
+	 */
+	private void insert(Object element, int h) {
+		int mask = keys.length - 1;
+		int i = h & mask;
+		while (keys[i] != null && keys[i] != TOMBSTONE) {
+			i = (i + 1) & mask;
+		}
+		if (keys[i] == TOMBSTONE) {
+			numTombstones--;
+		}
+		keys[i] = element;
+		hashes[i] = h;
+		numElements++;
+	}
+
+	/**
+	 * Deletes an element from the table
+	 * 
+	 * @param element the element to delete
+	 * @return if element deleted or not
+	 * @throws NullPointerException if element is null
+	 */
+	public boolean delete(T element) throws NullPointerException {
+		if (element == null) {
+			throw new NullPointerException("delete: element is null!");
+		}
+		int slot = slotOf(element, hash(element));
+		if (slot == -1) {
+			return false;
+		}
+		keys[slot] = TOMBSTONE;
+		numElements--;
+		numTombstones++;
+		return true;
+	}
+
+	/**
+	 * Clears the table
+	 */
+	public void clear() {
+		allocate(keys.length);
+	}
+
+	/**
+	 * Re-inserts the live elements into fresh arrays, dropping the tombstones. The
+	 * capacity is sized so the live elements fill at most half of the allowed
+	 * load, which only grows the table if the deletes didn't free enough room;
+	 * otherwise this just compacts away the deleted slots
+	 */
+	private void rebuild() {
+		Object[] oldKeys = keys;
+		int[] oldHashes = hashes;
+		allocate(capacityFor(2 * (numElements + 1)));
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE) {
+				insert(oldKeys[i], oldHashes[i]);
+			}
+		}
+	}
+
+	/* Additional Methods */
+	/**
+	 * A toString override for the table
+	 * 
+	 * @return all elements in a string separated by spaces, ending with a newline
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (T element : getAllElements()) {
+			result.append(element).append(" ");
+		}
+		return result.toString() + "\n";
+	}
+}
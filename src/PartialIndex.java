@@ -0,0 +1,373 @@
+/**
+ * PartialIndex.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * An inverted index of a contiguous slice of a batch of songs, with its own
+ * word IDs so it can be built without touching the SearchEngine. Slices are
+ * built in parallel by BuildTask and merged as the tasks join. The songs are
+ * only read: the song at index i of the batch is indexed as doc ID
+ * firstDocId + i, so a batch can be indexed for a new index while the old one
+ * still serves. Words are looked up straight from the tokenizer's buffer in an
+ * open-addressing table, so only a word's first occurrence in the slice
+ * allocates anything.
+ */
+public class PartialIndex {
+	/**
+	 * Builds the partial index of a slice of songs on a fork-join pool, splitting
+	 * it in half until the slices are small enough and merging the halves
+	 */
+	public static class BuildTask extends RecursiveTask<PartialIndex> {
+		/**
+		 * Serialization version; tasks are never serialized
+		 */
+		private static final long serialVersionUID = 1L;
+		/**
+		 * The batch of songs
+		 */
+		private final Song[] songs;
+		/**
+		 * The first song of the slice
+		 */
+		private final int from;
+		/**
+		 * One past the last song of the slice
+		 */
+		private final int to;
+		/**
+		 * The most songs a task indexes without splitting
+		 */
+		private final int threshold;
+		/**
+		 * The doc ID of the first song of the batch
+		 */
+		private final int firstDocId;
+		/**
+		 * Turns the lyrics into keywords
+		 */
+		private final Analyzer analyzer;
+
+		/**
+		 * Constructor that sets the slice to build
+		 * 
+		 * @param songs      the batch of songs
+		 * @param from       the first song of the slice
+		 * @param to         one past the last song of the slice
+		 * @param threshold  the most songs to index without splitting, &gt;= 1
+		 * @param firstDocId the doc ID of songs[0]
+		 * @param analyzer   turns the lyrics into keywords
+		 */
+		public BuildTask(Song[] songs, int from, int to, int threshold, int firstDocId, Analyzer analyzer) {
+			this.songs = songs;
+			this.from = from;
+			this.to = to;
+			this.threshold = threshold;
+			this.firstDocId = firstDocId;
+			this.analyzer = analyzer;
+		}
+
+		/**
+		 * Builds the slice's partial index
+		 * 
+		 * @return the partial index of songs[from..to)
+		 */
+		@Override
+		protected PartialIndex compute() {
+			if (to - from <= threshold) {
+				return new PartialIndex(songs, from, to, firstDocId, analyzer);
+			}
+			int mid = from + (to - from) / 2;
+			BuildTask left = new BuildTask(songs, from, mid, threshold, firstDocId, analyzer);
+			left.fork();
+			PartialIndex right = new BuildTask(songs, mid, to, threshold, firstDocId, analyzer).compute();
+			PartialIndex result = left.join();
+			result.merge(right);
+			return result;
+		}
+	}
+
+	/**
+	 * The initial number of slots of the word table, a power of 2
+	 */
+	private static final int INITIAL_SLOTS = 64;
+
+	/**
+	 * The word table: each slot holds a local ID + 1, or 0 if empty, and is
+	 * probed linearly from the word's hash; kept at most half full
+	 */
+	private int[] slots;
+	/**
+	 * Each word, with its local ID as its ID, at the position of its local ID
+	 */
+	private final ArrayList<WordID> words;
+	/**
+	 * The postings of the slice's songs for each local ID
+	 */
+	private final ArrayList<PostingList> postings;
+	/**
+	 * The local IDs of each song's filtered lyrics in order, in slice order
+	 */
+	private int[][] terms;
+	/**
+	 * The distinct local IDs of each song, in slice order
+	 */
+	private int[][] distinct;
+
+	/* Constructors */
+	/**
+	 * Constructor that tokenizes a slice of songs
+	 * 
+	 * @param songs      the batch of songs
+	 * @param from       the first song of the slice
+	 * @param to         one past the last song of the slice
+	 * @param firstDocId the doc ID of songs[0]
+	 * @param analyzer   turns the lyrics into keywords
+	 */
+	public PartialIndex(Song[] songs, int from, int to, int firstDocId, Analyzer analyzer) {
+		slots = new int[INITIAL_SLOTS];
+		words = new ArrayList<>();
+		postings = new ArrayList<>();
+		terms = new int[to - from][];
+		distinct = new int[to - from][];
+		Tokenizer tokenizer = analyzer.newTokenizer();
+		int[] songTerms = new int[64];
+		int[] songDistinct = new int[64];
+		for (int i = from; i < to; i++) {
+			int docId = firstDocId + i;
+			int numDistinct = 0;
+			tokenizer.reset(songs[i].getUnfilteredLyrics());
+			int position = 0;
+			for (; tokenizer.next(); position++) {
+				char[] chars = tokenizer.getChars();
+				int length = tokenizer.getLength();
+				int hash = hash(chars, length);
+				int slot = find(chars, length, hash);
+				int id;
+				if (slots[slot] == 0) {
+					id = add(slot, new String(chars, 0, length));
+					postings.add(new PostingList());
+				} else {
+					id = slots[slot] - 1;
+				}
+				if (position == songTerms.length) {
+					songTerms = Arrays.copyOf(songTerms, position * 2);
+				}
+				songTerms[position] = id;
+				if (postings.get(id).add(docId, position)) {
+					if (numDistinct == songDistinct.length) {
+						songDistinct = Arrays.copyOf(songDistinct, numDistinct * 2);
+					}
+					songDistinct[numDistinct++] = id;
+				}
+			}
+			terms[i - from] = Arrays.copyOf(songTerms, position);
+			distinct[i - from] = Arrays.copyOf(songDistinct, numDistinct);
+		}
+	}
+
+	/* Accessors */
+	/**
+	 * Returns the number of distinct words in the slice
+	 * 
+	 * @return the number of local IDs
+	 */
+	public int getNumWords() {
+		return words.size();
+	}
+
+	/**
+	 * Returns the word with a local ID
+	 * 
+	 * @param localId the word's local ID
+	 * @return the word
+	 */
+	public String getWord(int localId) {
+		return words.get(localId).getWord();
+	}
+
+	/**
+	 * Returns the word with a local ID as a WordID whose ID is the local ID;
+	 * since WordIDs are equal by word, it can look the word up in the engine
+	 * 
+	 * @param localId the word's local ID
+	 * @return the word and its local ID
+	 */
+	public WordID getWordId(int localId) {
+		return words.get(localId);
+	}
+
+	/**
+	 * Returns the postings of the word with a local ID
+	 * 
+	 * @param localId the word's local ID
+	 * @return the word's posting list
+	 */
+	public PostingList getPostings(int localId) {
+		return postings.get(localId);
+	}
+
+	/**
+	 * Returns the local IDs of a song's filtered lyrics, in order; the array is
+	 * not copied
+	 * 
+	 * @param index the song's index within the slice
+	 * @return the song's local IDs
+	 */
+	public int[] getTerms(int index) {
+		return terms[index];
+	}
+
+	/**
+	 * Returns the distinct local IDs of a song; the array is not copied
+	 * 
+	 * @param index the song's index within the slice
+	 * @return the IDs in the order the words first appear
+	 */
+	public int[] getDistinct(int index) {
+		return distinct[index];
+	}
+
+	/* Mutators */
+	/**
+	 * Adds the partial index of the slice right after this one, renumbering its
+	 * words into this one's local IDs
+	 * 
+	 * @param next the following slice's partial index
+	 */
+	public void merge(PartialIndex next) {
+		int[] remap = new int[next.words.size()];
+		for (int j = 0; j < remap.length; j++) {
+			String word = next.words.get(j).getWord();
+			int slot = find(word, word.hashCode());
+			int id;
+			if (slots[slot] == 0) {
+				id = add(slot, word);
+				postings.add(next.postings.get(j));
+			} else {
+				id = slots[slot] - 1;
+				postings.get(id).addAll(next.postings.get(j));
+			}
+			remap[j] = id;
+		}
+		int count = terms.length;
+		terms = Arrays.copyOf(terms, count + next.terms.length);
+		distinct = Arrays.copyOf(distinct, count + next.distinct.length);
+		for (int i = 0; i < next.terms.length; i++) {
+			terms[count + i] = renumber(next.terms[i], remap);
+			distinct[count + i] = renumber(next.distinct[i], remap);
+		}
+	}
+
+	/* Additional Methods */
+	/**
+	 * Gives a word missing from the word table the next local ID, doubling the
+	 * table if it gets more than half full
+	 * 
+	 * @param slot the empty slot find returned for the word
+	 * @param word the word
+	 * @return the word's local ID
+	 */
+	private int add(int slot, String word) {
+		int id = words.size();
+		words.add(new WordID(word, id));
+		slots[slot] = id + 1;
+		if (2 * words.size() > slots.length) {
+			int[] old = slots;
+			slots = new int[old.length * 2];
+			for (int entry : old) {
+				if (entry != 0) {
+					int i = home(words.get(entry - 1).getWord().hashCode());
+					while (slots[i] != 0) {
+						i = (i + 1) & (slots.length - 1);
+					}
+					slots[i] = entry;
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * Finds the slot of a word held in a buffer
+	 * 
+	 * @param chars  the buffer, with the word starting at index 0
+	 * @param length the length of the word
+	 * @param hash   the word's hash, as from hash
+	 * @return the slot holding the word, or the empty slot where it would go
+	 */
+	private int find(char[] chars, int length, int hash) {
+		int i = home(hash);
+		while (slots[i] != 0) {
+			String word = words.get(slots[i] - 1).getWord();
+			if (word.length() == length) {
+				int k = 0;
+				while (k < length && word.charAt(k) == chars[k]) {
+					k++;
+				}
+				if (k == length) {
+					return i;
+				}
+			}
+			i = (i + 1) & (slots.length - 1);
+		}
+		return i;
+	}
+
+	/**
+	 * Finds the slot of a word
+	 * 
+	 * @param word the word
+	 * @param hash the word's hash code
+	 * @return the slot holding the word, or the empty slot where it would go
+	 */
+	private int find(String word, int hash) {
+		int i = home(hash);
+		while (slots[i] != 0 && !words.get(slots[i] - 1).getWord().equals(word)) {
+			i = (i + 1) & (slots.length - 1);
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the slot a hash starts probing from, mixing its high bits in
+	 * 
+	 * @param hash the hash
+	 * @return the first slot to probe
+	 */
+	private int home(int hash) {
+		return (hash ^ (hash >>> 16)) & (slots.length - 1);
+	}
+
+	/**
+	 * Hashes a word held in a buffer the same way String.hashCode does
+	 * 
+	 * @param chars  the buffer, with the word starting at index 0
+	 * @param length the length of the word
+	 * @return the word's hash
+	 */
+	private static int hash(char[] chars, int length) {
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * Replaces each ID in an array with its new number
+	 * 
+	 * @param ids   the IDs, changed in place
+	 * @param remap the new number of each old ID
+	 * @return ids
+	 */
+	public static int[] renumber(int[] ids, int[] remap) {
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = remap[ids[i]];
+		}
+		return ids;
+	}
+}
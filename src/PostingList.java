@@ -0,0 +1,639 @@
+/**
+ * PostingList.java
+ * CIS 22C, Final Project
+ */
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * A sorted list of distinct song doc IDs for one word of the inverted index,
+ * along with the positions of the word in each song's filtered lyrics. The IDs
+ * are kept in an int array that doubles when full; since songs are indexed in
+ * doc ID order, adding a posting is almost always an append. The positions of
+ * every posting share one flat int array, in doc ID order, with the start of
+ * each posting's run kept in an offsets array, so a posting costs no object of
+ * its own. The list can also be compressed: the doc IDs become deltas between
+ * consecutive IDs and each posting's positions become deltas between
+ * consecutive positions, both written as variable-length bytes (7 bits per
+ * byte), which are decoded again the next time the list is modified.
+ */
+public class PostingList {
+	/**
+	 * The capacity of a new list
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+	/**
+	 * The doc IDs in ascending order; only the first size are used. null while
+	 * compressed
+	 */
+	private int[] docIds;
+	/**
+	 * The number of doc IDs in the list
+	 */
+	private int size;
+	/**
+	 * The delta and variable-byte encoded doc IDs, null if not compressed
+	 */
+	private byte[] compressed;
+	/**
+	 * offsets[i] is the index in positions of the first position of the song at
+	 * index i of docIds, and offsets[size] is the number of positions, so the
+	 * word appears offsets[i + 1] - offsets[i] times in that song. Kept while
+	 * compressed
+	 */
+	private int[] offsets;
+	/**
+	 * The word's positions in every song, grouped by song in doc ID order and
+	 * ascending within a song; only the first offsets[size] are used. null while
+	 * compressed
+	 */
+	private int[] positions;
+	/**
+	 * The delta and variable-byte encoded positions, each song's run starting
+	 * from 0, null if not compressed
+	 */
+	private byte[] compressedPositions;
+
+	/* CONSTRUCTORS */
+	/**
+	 * Creates an empty posting list
+	 */
+	public PostingList() {
+		docIds = new int[INITIAL_CAPACITY];
+		size = 0;
+		compressed = null;
+		offsets = new int[INITIAL_CAPACITY + 1];
+		positions = new int[INITIAL_CAPACITY];
+		compressedPositions = null;
+	}
+
+	/* ACCESSORS */
+	/**
+	 * Returns the number of doc IDs in the list
+	 * 
+	 * @return the number of doc IDs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether the list is empty
+	 * 
+	 * @return if there are no doc IDs
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns whether the list is currently stored compressed
+	 * 
+	 * @return if the list is compressed
+	 */
+	public boolean isCompressed() {
+		return compressed != null;
+	}
+
+	/**
+	 * Returns whether the list holds a doc ID
+	 * 
+	 * @param docId the doc ID to look for
+	 * @return if the doc ID is in the list
+	 */
+	public boolean contains(int docId) {
+		return indexOf(docId) >= 0;
+	}
+
+	/**
+	 * Returns the index of a doc ID in the list
+	 * 
+	 * @param docId the doc ID to look for
+	 * @return the index, or a negative number if the doc ID isn't in the list
+	 */
+	private int indexOf(int docId) {
+		if (compressed != null) {
+			return Arrays.binarySearch(decode(), docId);
+		}
+		return Arrays.binarySearch(docIds, 0, size, docId);
+	}
+
+	/**
+	 * Returns how many times the word appears in a song
+	 * 
+	 * @param docId the song's doc ID
+	 * @return the word's frequency, 0 if the song isn't in the list
+	 */
+	public int getFrequency(int docId) {
+		int index = indexOf(docId);
+		return index >= 0 ? offsets[index + 1] - offsets[index] : 0;
+	}
+
+	/**
+	 * Returns the frequencies of the word in each song, in the same order as
+	 * toArray()
+	 * 
+	 * @return a new array of exactly size() frequencies
+	 */
+	public int[] getFrequencies() {
+		int[] frequencies = new int[size];
+		for (int i = 0; i < size; i++) {
+			frequencies[i] = offsets[i + 1] - offsets[i];
+		}
+		return frequencies;
+	}
+
+	/**
+	 * Returns the word's positions in a song's filtered lyrics
+	 * 
+	 * @param docId the song's doc ID
+	 * @return a new array of the positions in ascending order, empty if the song
+	 *         isn't in the list
+	 */
+	public int[] getPositions(int docId) {
+		int index = indexOf(docId);
+		if (index < 0) {
+			return new int[0];
+		}
+		if (compressed == null) {
+			return Arrays.copyOfRange(positions, offsets[index], offsets[index + 1]);
+		}
+
+		// Skip the positions of the songs before, then decode this song's run
+		int[] result = new int[offsets[index + 1] - offsets[index]];
+		int skip = offsets[index];
+		int read = 0;
+		int previous = 0;
+		int shift = 0;
+		int delta = 0;
+		for (int i = 0; read < result.length; i++) {
+			byte b = compressedPositions[i];
+			if (skip > 0) {
+				if ((b & 0x80) != 0) {
+					skip--;
+				}
+				continue;
+			}
+			delta |= (b & 0x7F) << shift;
+			if ((b & 0x80) != 0) {
+				previous += delta;
+				result[read++] = previous;
+				delta = 0;
+				shift = 0;
+			} else {
+				shift += 7;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the doc IDs in ascending order
+	 * 
+	 * @return a new array of exactly size() doc IDs
+	 */
+	public int[] toArray() {
+		if (compressed != null) {
+			return decode();
+		}
+		return Arrays.copyOf(docIds, size);
+	}
+
+	/**
+	 * Returns roughly how many bytes the list's doc IDs, offsets and positions
+	 * take up
+	 * 
+	 * @return the size of the backing arrays in bytes
+	 */
+	public long getStorageBytes() {
+		long bytes = offsets.length * (long) Integer.BYTES;
+		if (compressed != null) {
+			return bytes + compressed.length + compressedPositions.length;
+		}
+		return bytes + (docIds.length + positions.length) * (long) Integer.BYTES;
+	}
+
+	/* MUTATORS */
+	/**
+	 * Records an occurrence of the word in a song, adding the song's doc ID to the
+	 * list if it is new. A song's positions must be added in ascending order
+	 * 
+	 * @param docId    the song's doc ID, &gt;= 0
+	 * @param position the word's position in the song's filtered lyrics
+	 * @return false if the doc ID was already in the list
+	 * @throws IllegalArgumentException if docId &lt; 0
+	 */
+	public boolean add(int docId, int position) throws IllegalArgumentException {
+		if (docId < 0) {
+			throw new IllegalArgumentException("add: docId is < 0");
+		}
+		decompress();
+		int index;
+		if (size == 0 || docIds[size - 1] < docId) {
+			index = size; // Common case: append
+		} else if (docIds[size - 1] == docId) {
+			insertPosition(size - 1, position); // Common case: the song being added
+			return false;
+		} else {
+			index = Arrays.binarySearch(docIds, 0, size, docId);
+			if (index >= 0) {
+				insertPosition(index, position);
+				return false;
+			}
+			index = -index - 1;
+		}
+		if (size == docIds.length) {
+			docIds = Arrays.copyOf(docIds, docIds.length * 2);
+			offsets = Arrays.copyOf(offsets, docIds.length + 1);
+		}
+		System.arraycopy(docIds, index, docIds, index + 1, size - index);
+		System.arraycopy(offsets, index, offsets, index + 1, size - index + 1);
+		docIds[index] = docId;
+		size++;
+		insertPosition(index, position);
+		return true;
+	}
+
+	/**
+	 * Adds a position to the end of a posting's run, shifting the runs after it
+	 * and doubling the positions array when full
+	 * 
+	 * @param index    the posting's index
+	 * @param position the position to add
+	 */
+	private void insertPosition(int index, int position) {
+		int total = offsets[size];
+		if (total == positions.length) {
+			positions = Arrays.copyOf(positions, Math.max(INITIAL_CAPACITY, positions.length * 2));
+		}
+		int at = offsets[index + 1];
+		System.arraycopy(positions, at, positions, at + 1, total - at);
+		positions[at] = position;
+		for (int i = index + 1; i <= size; i++) {
+			offsets[i]++;
+		}
+	}
+
+	/**
+	 * Adds every posting of another list, e.g. one built separately for a batch of
+	 * songs. When the other list's doc IDs all come after this one's, as with
+	 * newly assigned doc IDs, its arrays are just copied onto the end; otherwise
+	 * the two are merged into new arrays. The lists must not share a doc ID
+	 * 
+	 * @param other the list whose postings to add; it is left unchanged
+	 * @throws IllegalArgumentException if a doc ID is in both lists; this list
+	 *                                  is then left unchanged
+	 */
+	public void addAll(PostingList other) throws IllegalArgumentException {
+		decompress();
+		int[] otherIds = other.toArray();
+		int[] otherPositions = other.compressed != null ? other.decodePositions(0) : other.positions;
+		int total = size + other.size;
+		int totalPositions = offsets[size] + other.offsets[other.size];
+		if (size == 0 || other.size == 0 || docIds[size - 1] < otherIds[0]) {
+			if (total > docIds.length) {
+				int capacity = Math.max(docIds.length * 2, total);
+				docIds = Arrays.copyOf(docIds, capacity);
+				offsets = Arrays.copyOf(offsets, capacity + 1);
+			}
+			if (totalPositions > positions.length) {
+				positions = Arrays.copyOf(positions, Math.max(positions.length * 2, totalPositions));
+			}
+			int base = offsets[size];
+			System.arraycopy(otherIds, 0, docIds, size, other.size);
+			System.arraycopy(otherPositions, 0, positions, base, other.offsets[other.size]);
+			for (int j = 1; j <= other.size; j++) {
+				offsets[size + j] = base + other.offsets[j];
+			}
+		} else {
+			int capacity = Math.max(docIds.length, total);
+			int[] mergedIds = new int[capacity];
+			int[] mergedOffsets = new int[capacity + 1];
+			int[] mergedPositions = new int[Math.max(positions.length, totalPositions)];
+			int i = 0;
+			int j = 0;
+			int p = 0;
+			for (int k = 0; k < total; k++) {
+				int[] fromPositions;
+				int from;
+				int to;
+				if (i < size && j < other.size && docIds[i] == otherIds[j]) {
+					throw new IllegalArgumentException("addAll: doc ID " + docIds[i] + " is in both lists");
+				}
+				if (j == other.size || i < size && docIds[i] < otherIds[j]) {
+					mergedIds[k] = docIds[i];
+					fromPositions = positions;
+					from = offsets[i];
+					to = offsets[++i];
+				} else {
+					mergedIds[k] = otherIds[j];
+					fromPositions = otherPositions;
+					from = other.offsets[j];
+					to = other.offsets[++j];
+				}
+				System.arraycopy(fromPositions, from, mergedPositions, p, to - from);
+				p += to - from;
+				mergedOffsets[k + 1] = p;
+			}
+			docIds = mergedIds;
+			offsets = mergedOffsets;
+			positions = mergedPositions;
+		}
+		size = total;
+	}
+
+	/**
+	 * Removes a doc ID from the list
+	 * 
+	 * @param docId the doc ID to remove
+	 * @return false if the doc ID wasn't in the list
+	 */
+	public boolean remove(int docId) {
+		decompress();
+		int index = Arrays.binarySearch(docIds, 0, size, docId);
+		if (index < 0) {
+			return false;
+		}
+		int from = offsets[index];
+		int count = offsets[index + 1] - from;
+		System.arraycopy(positions, from + count, positions, from, offsets[size] - from - count);
+		System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+		for (int i = index + 1; i <= size; i++) {
+			offsets[i - 1] = offsets[i] - count;
+		}
+		size--;
+		return true;
+	}
+
+	/**
+	 * Stores the list as variable-byte encoded deltas, dropping the doc ID and
+	 * position arrays; does nothing if the list is already compressed
+	 */
+	public void compress() {
+		if (compressed != null) {
+			return;
+		}
+		byte[] buffer = new byte[size * 5];
+		int length = 0;
+		int previous = 0;
+		for (int i = 0; i < size; i++) {
+			length = writeVarByte(buffer, length, docIds[i] - previous);
+			previous = docIds[i];
+		}
+		compressed = Arrays.copyOf(buffer, length);
+
+		buffer = new byte[offsets[size] * 5];
+		length = 0;
+		for (int i = 0; i < size; i++) {
+			previous = 0;
+			for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+				length = writeVarByte(buffer, length, positions[k] - previous);
+				previous = positions[k];
+			}
+		}
+		compressedPositions = Arrays.copyOf(buffer, length);
+		docIds = null;
+		positions = null;
+		offsets = Arrays.copyOf(offsets, size + 1);
+	}
+
+	/**
+	 * Writes a non-negative number as 7-bit groups, lowest first; the high bit
+	 * marks the last byte
+	 * 
+	 * @param buffer the array to write into, with room for 5 more bytes
+	 * @param length the index to write at
+	 * @param value  the number to write
+	 * @return the index after the last byte written
+	 */
+	private static int writeVarByte(byte[] buffer, int length, int value) {
+		while (value >= 0x80) {
+			buffer[length++] = (byte) (value & 0x7F);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) (value | 0x80); // High bit ends the number
+		return length;
+	}
+
+	/**
+	 * Decodes a compressed list back into the int arrays; does nothing if the
+	 * list isn't compressed
+	 */
+	private void decompress() {
+		if (compressed == null) {
+			return;
+		}
+		int capacity = Math.max(INITIAL_CAPACITY, size);
+		docIds = Arrays.copyOf(decode(), capacity);
+		positions = decodePositions(INITIAL_CAPACITY);
+		offsets = Arrays.copyOf(offsets, capacity + 1);
+		compressed = null;
+		compressedPositions = null;
+	}
+
+	/**
+	 * Decodes the compressed bytes into a new array
+	 * 
+	 * @return the doc IDs in ascending order
+	 */
+	private int[] decode() {
+		int[] decoded = new int[size];
+		int previous = 0;
+		int shift = 0;
+		int delta = 0;
+		int count = 0;
+		for (byte b : compressed) {
+			delta |= (b & 0x7F) << shift;
+			if ((b & 0x80) != 0) {
+				previous += delta;
+				decoded[count++] = previous;
+				delta = 0;
+				shift = 0;
+			} else {
+				shift += 7;
+			}
+		}
+		return decoded;
+	}
+
+	/**
+	 * Decodes the compressed positions of every song into a new flat array
+	 * 
+	 * @param minCapacity the smallest length of the array
+	 * @return the positions, grouped by song as offsets describes
+	 */
+	private int[] decodePositions(int minCapacity) {
+		int[] decoded = new int[Math.max(minCapacity, offsets[size])];
+		int song = 0;
+		int previous = 0;
+		int shift = 0;
+		int delta = 0;
+		int count = 0;
+		for (byte b : compressedPositions) {
+			delta |= (b & 0x7F) << shift;
+			if ((b & 0x80) != 0) {
+				while (count == offsets[song + 1]) {
+					song++; // A new song's run starts from 0
+					previous = 0;
+				}
+				previous += delta;
+				decoded[count++] = previous;
+				delta = 0;
+				shift = 0;
+			} else {
+				shift += 7;
+			}
+		}
+		return decoded;
+	}
+
+	/* ADDITIONAL OPERATIONS */
+	/**
+	 * Returns whether a song has the given words in order, each at most slop
+	 * positions after the one before it (slop 0 is an exact phrase)
+	 * 
+	 * @param lists the posting lists of the words, in phrase order
+	 * @param docId the song's doc ID
+	 * @param slop  how many other words may come between consecutive words
+	 * @return if the song matches
+	 */
+	public static boolean matchesPhrase(PostingList[] lists, int docId, int slop) {
+		// reachable holds the positions at which the phrase so far can end
+		int[] reachable = lists[0].getPositions(docId);
+		for (int k = 1; k < lists.length && reachable.length > 0; k++) {
+			int[] next = lists[k].getPositions(docId);
+			int[] ends = new int[next.length];
+			int count = 0;
+			int j = -1; // Index of the last reachable position before next[i]
+			for (int position : next) {
+				while (j + 1 < reachable.length && reachable[j + 1] < position) {
+					j++;
+				}
+				if (j >= 0 && position - reachable[j] - 1 <= slop) {
+					ends[count++] = position;
+				}
+			}
+			reachable = Arrays.copyOf(ends, count);
+		}
+		return reachable.length > 0;
+	}
+
+	/**
+	 * Returns the doc IDs in both sorted arrays. Each ID of the shorter array is
+	 * looked for in the longer one by galloping (doubling steps, then a binary
+	 * search), so the cost grows with the shorter array rather than the sum
+	 * 
+	 * @param a a sorted array of distinct doc IDs
+	 * @param b a sorted array of distinct doc IDs
+	 * @return the sorted intersection
+	 */
+	public static int[] intersect(int[] a, int[] b) {
+		if (a.length > b.length) {
+			int[] temp = a;
+			a = b;
+			b = temp;
+		}
+		int[] result = new int[a.length];
+		int count = 0;
+		int low = 0;
+		for (int docId : a) {
+			low = gallop(b, low, docId);
+			if (low == b.length) {
+				break;
+			}
+			if (b[low] == docId) {
+				result[count++] = docId;
+				low++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the doc IDs of a that are not in b
+	 * 
+	 * @param a a sorted array of distinct doc IDs
+	 * @param b a sorted array of distinct doc IDs to leave out
+	 * @return the sorted difference
+	 */
+	public static int[] subtract(int[] a, int[] b) {
+		int[] result = new int[a.length];
+		int count = 0;
+		int low = 0;
+		for (int docId : a) {
+			low = gallop(b, low, docId);
+			if (low == b.length || b[low] != docId) {
+				result[count++] = docId;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the doc IDs in any of the sorted arrays, merging them all at once
+	 * with a heap of one cursor per array
+	 * 
+	 * @param lists sorted arrays of distinct doc IDs
+	 * @return the sorted union, without repeats
+	 */
+	public static int[] union(int[][] lists) {
+		int total = 0;
+		// Each cursor is {array index, position}, ordered by the doc ID it points at
+		PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(1, lists.length),
+				(c1, c2) -> Integer.compare(lists[c1[0]][c1[1]], lists[c2[0]][c2[1]]));
+		for (int i = 0; i < lists.length; i++) {
+			total += lists[i].length;
+			if (lists[i].length > 0) {
+				heap.add(new int[] { i, 0 });
+			}
+		}
+		int[] result = new int[total];
+		int count = 0;
+		while (!heap.isEmpty()) {
+			int[] cursor = heap.poll();
+			int docId = lists[cursor[0]][cursor[1]];
+			if (count == 0 || result[count - 1] != docId) {
+				result[count++] = docId;
+			}
+			if (++cursor[1] < lists[cursor[0]].length) {
+				heap.add(cursor);
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Returns the first index at or after low whose doc ID is &gt;= target
+	 * 
+	 * @param array  a sorted array of doc IDs
+	 * @param low    the index to start from
+	 * @param target the doc ID to look for
+	 * @return the index, or array.length if every remaining doc ID is smaller
+	 */
+	private static int gallop(int[] array, int low, int target) {
+		int step = 1;
+		int high = low;
+		while (high < array.length && array[high] < target) {
+			low = high + 1;
+			high += step;
+			step *= 2;
+		}
+		high = Math.min(high, array.length);
+		int index = Arrays.binarySearch(array, low, high, target);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/**
+	 * Returns the doc IDs separated by spaces
+	 * 
+	 * @return the list as a String
+	 */
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		for (int docId : toArray()) {
+			result.append(docId).append(" ");
+		}
+		return result.toString() + "\n";
+	}
+}
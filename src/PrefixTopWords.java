@@ -0,0 +1,242 @@
+/**
+ * PrefixTopWords.java
+ * CIS 22C, Final Project
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Caches the most common words, by document frequency, that start with each
+ * short prefix, so autocomplete can answer a one to three letter prefix
+ * without visiting the large share of the dictionary that shares it. A
+ * prefix's list is stored the first time it is asked for and then kept up to
+ * date as document frequencies change: a word that rises above the words left
+ * out of the list joins it, and a listed word that falls below them leaves it.
+ * Besides the list, each prefix keeps an upper bound on the document
+ * frequency of the words left out; the list can only answer for words ranked
+ * above that bound, and is rebuilt by the caller when it can't. Not
+ * thread-safe; SearchEngine uses it under the invertedIndex lock.
+ */
+public class PrefixTopWords {
+	/**
+	 * The cached words of one prefix, with a child for each longer prefix that
+	 * has been asked for
+	 */
+	private static class Node {
+		/**
+		 * The nodes of the prefixes one character longer, by that character
+		 */
+		private final HashMap<Character, Node> children = new HashMap<>();
+		/**
+		 * The listed words, most common first, ties in word order
+		 */
+		private WordID[] words;
+		/**
+		 * The document frequency of each listed word
+		 */
+		private int[] frequencies;
+		/**
+		 * The number of listed words
+		 */
+		private int size;
+		/**
+		 * No word with the prefix that isn't listed has a document frequency above
+		 * this
+		 */
+		private int outsideMax;
+		/**
+		 * Whether a list was stored for this prefix
+		 */
+		private boolean stored;
+	}
+
+	/**
+	 * The longest prefix whose words are cached
+	 */
+	private final int maxLength;
+	/**
+	 * The most words listed for a prefix
+	 */
+	private final int capacity;
+	/**
+	 * The node of the empty prefix
+	 */
+	private Node root;
+
+	/* Constructors */
+	/**
+	 * Constructor that sets which prefixes are cached and how deeply
+	 *
+	 * @param maxLength the longest prefix to cache, &gt;= 0
+	 * @param capacity  the most words to list per prefix, &gt;= 1
+	 */
+	public PrefixTopWords(int maxLength, int capacity) {
+		this.maxLength = maxLength;
+		this.capacity = capacity;
+		this.root = new Node();
+	}
+
+	/* Accessors */
+	/**
+	 * Returns the most words listed for a prefix
+	 *
+	 * @return the capacity of each list
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns whether the top words of a prefix can be cached
+	 *
+	 * @param prefix the analyzed prefix
+	 * @param limit  the number of words wanted
+	 * @return if the prefix is short enough and limit fits in a list
+	 */
+	public boolean covers(String prefix, int limit) {
+		return prefix.length() <= maxLength && limit <= capacity;
+	}
+
+	/**
+	 * Returns the most common words starting with a prefix, if its list can
+	 * answer for them
+	 *
+	 * @param prefix the analyzed prefix
+	 * @param limit  the most words to return
+	 * @return the words, most common first, or null if the prefix isn't cached
+	 *         or its list can't tell which words come next
+	 */
+	public ArrayList<String> lookup(String prefix, int limit) {
+		if (!covers(prefix, limit)) {
+			return null;
+		}
+		Node node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.children.get(prefix.charAt(i));
+		}
+		if (node == null || !node.stored) {
+			return null;
+		}
+		int count = Math.min(limit, node.size);
+		// A word at the bound could tie with, or lose to, a word left out
+		if (count > 0 && node.frequencies[count - 1] <= node.outsideMax
+				|| count < limit && node.outsideMax > 0) {
+			return null;
+		}
+		ArrayList<String> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(node.words[i].getWord());
+		}
+		return result;
+	}
+
+	/* Mutators */
+	/**
+	 * Stores the list of a prefix, replacing any list it had
+	 *
+	 * @param prefix      the analyzed prefix; covers(prefix, 1) must hold
+	 * @param words       the most common words with the prefix, most common
+	 *                    first, ties in word order; at most capacity of them
+	 * @param frequencies the document frequency of each word
+	 * @param count       the number of words
+	 * @param outsideMax  the highest document frequency of the words left out, 0
+	 *                    if there are none
+	 */
+	public void store(String prefix, WordID[] words, int[] frequencies, int count, int outsideMax) {
+		Node node = root;
+		for (int i = 0; i < prefix.length(); i++) {
+			node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Node());
+		}
+		node.words = Arrays.copyOf(words, capacity);
+		node.frequencies = Arrays.copyOf(frequencies, capacity);
+		node.size = count;
+		node.outsideMax = outsideMax;
+		node.stored = true;
+	}
+
+	/**
+	 * Updates the lists of every cached prefix of a word whose document frequency
+	 * changed
+	 *
+	 * @param word      the word
+	 * @param frequency its new document frequency, 0 if it was removed
+	 */
+	public void update(WordID word, int frequency) {
+		String text = word.getWord();
+		Node node = root;
+		for (int i = 0; node != null; i++) {
+			if (node.stored) {
+				update(node, word, frequency);
+			}
+			if (i == text.length() || i == maxLength) {
+				break;
+			}
+			node = node.children.get(text.charAt(i));
+		}
+	}
+
+	/**
+	 * Forgets every list, e.g. after the word IDs are renumbered
+	 */
+	public void clear() {
+		root = new Node();
+	}
+
+	/* Additional Methods */
+	/**
+	 * Moves a word into, within or out of one prefix's list
+	 *
+	 * @param node      the prefix's node
+	 * @param word      the word
+	 * @param frequency its new document frequency
+	 */
+	private void update(Node node, WordID word, int frequency) {
+		int index = 0;
+		while (index < node.size && !node.words[index].equals(word)) {
+			index++;
+		}
+		if (index < node.size) {
+			// Take the word out, then put it back if it still ranks above the rest
+			System.arraycopy(node.words, index + 1, node.words, index, node.size - index - 1);
+			System.arraycopy(node.frequencies, index + 1, node.frequencies, index, node.size - index - 1);
+			node.size--;
+			if (frequency == 0 || frequency < node.outsideMax) {
+				return;
+			}
+		} else if (frequency <= node.outsideMax) {
+			return;
+		}
+		int at = node.size;
+		while (at > 0 && comesBefore(word, frequency, node.words[at - 1], node.frequencies[at - 1])) {
+			at--;
+		}
+		if (node.size == capacity) {
+			if (at == capacity) {
+				node.outsideMax = Math.max(node.outsideMax, frequency);
+				return;
+			}
+			node.outsideMax = Math.max(node.outsideMax, node.frequencies[capacity - 1]);
+			node.size--;
+		}
+		System.arraycopy(node.words, at, node.words, at + 1, node.size - at);
+		System.arraycopy(node.frequencies, at, node.frequencies, at + 1, node.size - at);
+		node.words[at] = word;
+		node.frequencies[at] = frequency;
+		node.size++;
+	}
+
+	/**
+	 * Checks if one word ranks before another: more common first, then in word
+	 * order
+	 *
+	 * @param a     the first word
+	 * @param freqA its document frequency
+	 * @param b     the second word
+	 * @param freqB its document frequency
+	 * @return if a comes before b
+	 */
+	private static boolean comesBefore(WordID a, int freqA, WordID b, int freqB) {
+		return freqA != freqB ? freqA > freqB : a.getWord().compareTo(b.getWord()) < 0;
+	}
+}
@@ -6,50 +6,228 @@
  * CIS 22C, Final Project
  */
 import java.util.*;
-import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 
 /**
- * SearchEngine builds an inverted index using BSTs and allows keyword searches
- * over Song lyrics. Includes direct song access via HashTable and supports
- * adding/deleting songs.
+ * SearchEngine builds an inverted index of integer posting lists and allows
+ * keyword searches over Song lyrics. Includes direct song access via HashTable
+ * and supports adding/deleting songs.
  * 
  */
 public class SearchEngine {
 	/**
-	 * Maps each unique word to its WordID (word + assigned ID)
+	 * The hash table implementations the engine can store its words and songs in
+	 */
+	public enum TableType {
+		/**
+		 * HashTable: an array of LinkedList buckets
+		 */
+		CHAINED,
+		/**
+		 * OpenHashTable: flat arrays with linear probing
+		 */
+		OPEN_ADDRESSING,
+		/**
+		 * ConcurrentHashTable: striped locks, for calling indexSong from several
+		 * threads
+		 */
+		CONCURRENT
+	}
+
+	/**
+	 * The initial capacity of wordMap and songsMap
+	 */
+	private static final int DEFAULT_CAPACITY = 4096;
+	/**
+	 * BM25 term frequency saturation
+	 */
+	private static final double BM25_K1 = 1.2;
+	/**
+	 * BM25 song length normalization
+	 */
+	private static final double BM25_B = 0.75;
+	/**
+	 * Orders the dictionary's WordIDs by word
+	 */
+	private static final WordNameComparator WORD_ORDER = new WordNameComparator();
+	/**
+	 * The most typos a fuzzy keyword search can allow
+	 */
+	private static final int FUZZY_MAX_DISTANCE = 2;
+	/**
+	 * The longest prefix whose most common words are cached for autocomplete;
+	 * longer prefixes are shared by few enough words to scan
+	 */
+	private static final int TOP_WORDS_PREFIX_LENGTH = 3;
+	/**
+	 * The most words cached per prefix, and so the largest autocomplete limit
+	 * answered from the cache
+	 */
+	private static final int TOP_WORDS_CAPACITY = 32;
+	/**
+	 * How many times reindex tries to swap in a new index before giving up
+	 */
+	private static final int REINDEX_ATTEMPTS = 10;
+	/**
+	 * How long reindex waits after its first failed attempt, in milliseconds;
+	 * the wait doubles after each one
+	 */
+	private static final long REINDEX_BACKOFF_MS = 10;
+	/**
+	 * The hash table implementation of wordMap and songsMap
+	 */
+	private final TableType tableType;
+	/**
+	 * Turns lyrics and queries into keywords; replaced by reindex
+	 */
+	private volatile Analyzer analyzer;
+	/**
+	 * Maps each unique word to its WordID (word + assigned ID); replaced when the
+	 * word IDs are compacted or the songs are reindexed
  	 */
-	private final HashTable<WordID> wordMap;
+	private ElementTable<WordID> wordMap;
+	/**
+	 * The same WordIDs as wordMap, sorted by word, for prefix lookups
+	 */
+	private BST<WordID> dictionary;
+	/**
+	 * The same words as wordMap, indexed for typo-tolerant lookups
+	 */
+	private FuzzyIndex fuzzyIndex;
+	/**
+	 * The most common words of the short prefixes autocomplete was asked for,
+	 * kept up to date as postings are added and removed
+	 */
+	private final PrefixTopWords topWords;
 	/**
 	 * Stores all songs by title for direct O(1) access
 	 */
-	private final HashTable<Song> songsMap;
+	private final ElementTable<Song> songsMap;
+	/**
+	 * For each word ID, the sorted doc IDs of the Songs containing that word
+	 * (inverted index)
+	 */
+	private final ArrayList<PostingList> invertedIndex;
+	/**
+	 * Each word's WordID at the position of its word ID; null once deleted
+	 */
+	private final ArrayList<WordID> wordsById;
+	/**
+	 * The IDs of deleted words, reused before invertedIndex grows; the first
+	 * numFreeWordIds entries are in use
+	 */
+	private int[] freeWordIds;
+	/**
+	 * The number of reusable word IDs in freeWordIds
+	 */
+	private int numFreeWordIds;
 	/**
-	 * For each word ID, a BST of Songs containing that word (inverted index)
+	 * Each indexed Song at the position of its doc ID; null once deleted
 	 */
-	private final ArrayList<BST<Song>> invertedIndex;
+	private final ArrayList<Song> songsById;
+	/**
+	 * For each doc ID, the IDs of the distinct words in the song (forward index),
+	 * so a song can be removed from the inverted index without re-reading it
+	 */
+	private final ArrayList<int[]> forwardIndex;
+	/**
+	 * The number of words in each song's filtered lyrics, by doc ID
+	 */
+	private int[] docLengths;
+	/**
+	 * The sum of docLengths over the songs still indexed
+	 */
+	private long totalDocLength;
+	/**
+	 * The number of songs with a doc ID whose lyrics aren't fully indexed yet
+	 */
+	private int songsIndexing;
+	/**
+	 * Counts the songs added and deleted, so compactWordIds and reindex can tell
+	 * if the index changed while they worked
+	 */
+	private long indexVersion;
 
 	/**
 	 * Constructs a SearchEngine with default capacity
 	 */
 	public SearchEngine() {
-		this.wordMap = new HashTable<>(4096);
-		this.songsMap = new HashTable<>(4096);
+		this(TableType.CHAINED);
+	}
+
+	/**
+	 * Constructs a SearchEngine whose wordMap and songsMap use the given hash table
+	 * implementation
+	 * 
+	 * @param tableType the hash table implementation to use
+	 */
+	public SearchEngine(TableType tableType) {
+		this(tableType, Song.getDefaultAnalyzer());
+	}
+
+	/**
+	 * Constructs a SearchEngine that uses the given hash table implementation and
+	 * turns lyrics and queries into keywords with the given analyzer
+	 * 
+	 * @param tableType the hash table implementation to use
+	 * @param analyzer  the analyzer to use
+	 */
+	public SearchEngine(TableType tableType, Analyzer analyzer) {
+		this.tableType = tableType;
+		this.analyzer = analyzer;
+		this.wordMap = newTable(tableType);
+		this.dictionary = new BST<>(true);
+		this.fuzzyIndex = new FuzzyIndex(FUZZY_MAX_DISTANCE);
+		this.topWords = new PrefixTopWords(TOP_WORDS_PREFIX_LENGTH, TOP_WORDS_CAPACITY);
+		this.songsMap = newTable(tableType);
 		this.invertedIndex = new ArrayList<>();
+		this.wordsById = new ArrayList<>();
+		this.freeWordIds = new int[16];
+		this.numFreeWordIds = 0;
+		this.songsById = new ArrayList<>();
+		this.forwardIndex = new ArrayList<>();
+		this.docLengths = new int[16];
+		this.totalDocLength = 0;
+		this.songsIndexing = 0;
+		this.indexVersion = 0;
+	}
+
+	/**
+	 * Creates an empty hash table of the given type
+	 * 
+	 * @param <T>       the type of elements stored in the table
+	 * @param tableType the hash table implementation to use
+	 * @return the new table
+	 */
+	static <T> ElementTable<T> newTable(TableType tableType) {
+		if (tableType == TableType.OPEN_ADDRESSING) {
+			return new OpenHashTable<>(DEFAULT_CAPACITY);
+		} else if (tableType == TableType.CONCURRENT) {
+			return new ConcurrentHashTable<>(DEFAULT_CAPACITY);
+		}
+		return new HashTable<>(DEFAULT_CAPACITY);
 	}
 
 	/**
 	 * Creates a new Song object from information from the given file. If the file
-	 * does not exist, it prints an error message and does nothing. returns true if the operation was successful
+	 * does not exist or is not a song, it prints why and does nothing. returns true if the operation was successful
 	 * 
 	 * @param fileName the file containing song-information
 	 * @return true if operation was successful, false if not
 	 */
 	public boolean importSong(String fileName) {
 		Song song;
-		try {
-			song = createSongFromFile(fileName);
-		} catch (Exception e) {
-			System.out.printf("The file '%s' could not be found or was locked for reading.%n", fileName);
+		try (FileHandler fh = new FileHandler()) {
+			song = fh.readSong(Paths.get(fileName));
+		} catch (IOException e) {
+			// readSong's message tells a missing file from one that isn't a song
+			System.out.printf("The file '%s' could not be imported.%n%s", fileName, e.getMessage());
+			return false;
+		} catch (InvalidPathException e) {
+			System.out.printf("The file name '%s' is not valid.%n", fileName);
 			return false;
 		}
 		if (songsMap.contains(song)) {
@@ -73,7 +251,8 @@ public class SearchEngine {
 	}
 
 	/**
-	 * Deletes a specified song from the database
+	 * Deletes a specified song from the database. A song still being indexed by
+	 * another thread is deleted once its postings are in
 	 * 
 	 * @param title    the title of the song to delete
 	 * @param isModify true if the purpose of deleting is to modify an existing
@@ -81,37 +260,49 @@ public class SearchEngine {
 	 *                 messages
 	 */
 	public void deleteSong(String title, Boolean isModify) {
-		// Find the song in the database
 		Song songToDelete = new Song(title);
-		Song existingSong = songsMap.get(songToDelete);
+		Song existingSong;
+		synchronized (invertedIndex) {
+			// Find the song in the database, waiting until it is fully indexed
+			// if it was just added, so its forward index entry is there
+			existingSong = songsMap.get(songToDelete);
+			while (existingSong != null && isIndexing(existingSong)) {
+				try {
+					invertedIndex.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					System.out.printf("The song titled '%s' is still being indexed and was not removed.%n", title);
+					return;
+				}
+				existingSong = songsMap.get(songToDelete);
+			}
 
-		if (existingSong == null) {
-			System.out.printf("The song titled '%s' could not be found in the search engine.%n", title);
-			return;
-		}
+			if (existingSong == null) {
+				System.out.printf("The song titled '%s' could not be found in the search engine.%n", title);
+				return;
+			}
 
-		// Remove the song from primary storage
-		songsMap.delete(existingSong);
+			// Remove the song from primary storage
+			songsMap.delete(existingSong);
 
-		// Remove from all inverted index entries
-		ArrayList<String> words = new ArrayList<>();
-		Scanner stringScanner = new Scanner(existingSong.getFilteredLyrics());
-		while (stringScanner.hasNext()) {
-			String word = stringScanner.next();
-			if (!words.contains(word)) {
-				words.add(word);
-				WordID wordId = wordMap.get(new WordID(word, 0));
-				if (wordId != null) {
-					BST<Song> songTree = invertedIndex.get(wordId.getId());
-					songTree.remove(existingSong, new SongNameComparator());
-
-					// Remove words from wordMap that are unique to this song
-					if (songTree.isEmpty()) {
-						wordMap.delete(wordId);
-						invertedIndex.set(wordId.getId(), null);
-					}
+			// Remove from the inverted index entries of the song's distinct words
+			int docId = existingSong.getDocId();
+			for (int id : forwardIndex.get(docId)) {
+				PostingList postings = invertedIndex.get(id);
+				postings.remove(docId);
+				topWords.update(wordsById.get(id), postings.size());
+
+				// Remove words from wordMap that are unique to this song
+				if (postings.isEmpty()) {
+					removeWord(id);
 				}
 			}
+			indexVersion++;
+			forwardIndex.set(docId, null);
+			songsById.set(docId, null);
+			existingSong.setTermIds(null);
+			totalDocLength -= docLengths[existingSong.getDocId()];
+			existingSong.setDocId(-1);
 		}
 
 		// Print a summary message if removing permanently,
@@ -123,49 +314,581 @@ public class SearchEngine {
 	}
 
 	/**
-	 * Creates a Song object from information from a given file
+	 * Removes a word whose posting list is empty from wordMap, the dictionary and
+	 * the fuzzy index, and frees its ID for reuse; the caller holds the
+	 * invertedIndex lock
 	 * 
-	 * @param fileName the name of the file to read from containing the song
-	 *                 information
-	 * @return the created song object
-	 * @throws Exception if the file name is not a valid file, or the file does not
-	 *                   adhere to Song file rules.
+	 * @param id the word's ID
 	 */
-	private Song createSongFromFile(String fileName) throws Exception {
-		try (Scanner fileScanner = new Scanner(new File(fileName))) {
-			String title = fileScanner.nextLine();
-			int year = Integer.parseInt(fileScanner.nextLine());
-			String album = fileScanner.nextLine();
-			StringBuilder lyrics = new StringBuilder();
-			while (fileScanner.hasNextLine()) {
-				lyrics.append(fileScanner.nextLine()).append(" ");
-			}
-			return new Song(title, year, album, lyrics.toString().trim());
-		} catch (Exception e) {
-			throw new Exception("createSongFromFile(): Error reading song file: " + fileName, e);
+	private void removeWord(int id) {
+		WordID wordId = wordsById.get(id);
+		wordMap.delete(wordId);
+		dictionary.remove(wordId, WORD_ORDER);
+		fuzzyIndex.remove(wordId.getWord());
+		invertedIndex.set(id, null);
+		wordsById.set(id, null);
+		if (numFreeWordIds == freeWordIds.length) {
+			freeWordIds = Arrays.copyOf(freeWordIds, numFreeWordIds * 2);
 		}
+		freeWordIds[numFreeWordIds++] = id;
 	}
 
 	/**
-	 * Populates the data structures with the given song
+	 * Returns whether a song in songsMap is still waiting for its doc ID or its
+	 * postings; the caller holds the invertedIndex lock
+	 * 
+	 * @param song the song to check
+	 * @return if the song isn't fully indexed yet
+	 */
+	private boolean isIndexing(Song song) {
+		return song.getDocId() < 0 || forwardIndex.get(song.getDocId()) == null;
+	}
+
+	/**
+	 * Populates the data structures with the given song. With TableType.CONCURRENT
+	 * this may be called from several threads at once: songsMap is updated and the
+	 * lyrics are tokenized in parallel, and the invertedIndex lock is only taken
+	 * twice per song, to hand out the doc ID and to add the song's postings. If
+	 * the lyrics can't be indexed, the song is taken back out before the
+	 * exception is passed on
 	 * 
 	 * @param song the song to index
 	 */
 	public void indexSong(Song song) {
 		songsMap.add(song);
-		Scanner stringScanner = new Scanner(song.getFilteredLyrics());
-		while (stringScanner.hasNext()) {
-			String word = stringScanner.next();
-			WordID wordId = wordMap.get(new WordID(word, 0));
-			if (wordId == null) {
-				// New word detected, assign with new ID;
-				// update wordMap and invertedIndex
-				wordId = new WordID(word, invertedIndex.size());
-				wordMap.add(wordId);
-				invertedIndex.add(new BST<>());
+		int docId;
+		Analyzer songAnalyzer;
+		synchronized (invertedIndex) {
+			docId = newDocId(song);
+			songAnalyzer = analyzer;
+		}
+		indexLyrics(song, docId, songAnalyzer);
+	}
+
+	/**
+	 * Populates the data structures with a batch of songs at once, tokenizing them
+	 * on a single worker thread; the same as indexSongsParallel with one thread
+	 * 
+	 * @param songs the songs to index
+	 */
+	public void indexSongs(Song[] songs) {
+		indexSongsParallel(songs, 1);
+	}
+
+	/**
+	 * Populates the data structures with a batch of songs, tokenizing them on a
+	 * fork-join pool. Each task builds a partial index of a slice of the songs
+	 * with no locking, and the partial indexes are merged as the tasks join;
+	 * only handing out the doc IDs and adding the merged postings to the engine
+	 * take the invertedIndex lock. If the batch can't be indexed, its songs are
+	 * taken back out before the exception is passed on
+	 * 
+	 * @param songs   the songs to index
+	 * @param threads the number of worker threads
+	 * @throws IllegalArgumentException if threads &lt;= 0
+	 */
+	public void indexSongsParallel(Song[] songs, int threads) throws IllegalArgumentException {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("indexSongsParallel: threads is <= 0");
+		}
+		if (songs.length == 0) {
+			return;
+		}
+		int firstDocId;
+		Analyzer batchAnalyzer;
+		synchronized (invertedIndex) {
+			firstDocId = songsById.size();
+			batchAnalyzer = analyzer;
+			for (Song song : songs) {
+				songsMap.add(song);
+				newDocId(song);
+			}
+		}
+
+		PartialIndex partial = null;
+		boolean finished = false;
+		try {
+			partial = buildPartial(songs, firstDocId, batchAnalyzer, threads);
+			synchronized (invertedIndex) {
+				finishSongs(songs, partial, firstDocId);
+				finished = true;
+			}
+		} finally {
+			if (!finished) {
+				synchronized (invertedIndex) {
+					abandonSongs(songs, partial, firstDocId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tokenizes a batch of songs on a fork-join pool, without locking
+	 * 
+	 * @param songs      the songs to index
+	 * @param firstDocId the doc ID of songs[0]; the rest follow in order
+	 * @param analyzer   turns the lyrics into keywords
+	 * @param threads    the number of worker threads
+	 * @return the partial index of the whole batch
+	 */
+	private static PartialIndex buildPartial(Song[] songs, int firstDocId, Analyzer analyzer, int threads) {
+		// A few slices per thread, so a slow slice doesn't hold up the rest
+		int threshold = Math.max(1, songs.length / (threads * 4));
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new PartialIndex.BuildTask(songs, 0, songs.length, threshold, firstDocId, analyzer));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Adds a partial index's postings to the engine and records each of its songs'
+	 * length and distinct word IDs; the caller holds the invertedIndex lock
+	 * 
+	 * @param partial    the partial index of a batch of songs
+	 * @param firstDocId the doc ID of the batch's first song
+	 * @param count      the number of songs in the batch
+	 * @return the word IDs of each song's filtered lyrics, in batch order
+	 */
+	private int[][] mergePartial(PartialIndex partial, int firstDocId, int count) {
+		int[] wordIds = new int[partial.getNumWords()];
+		for (int localId = 0; localId < wordIds.length; localId++) {
+			int id = wordIdOf(partial.getWordId(localId));
+			if (invertedIndex.get(id).isEmpty()) {
+				invertedIndex.set(id, partial.getPostings(localId));
+			} else {
+				invertedIndex.get(id).addAll(partial.getPostings(localId));
+			}
+			topWords.update(wordsById.get(id), invertedIndex.get(id).size());
+			wordIds[localId] = id;
+		}
+		int[][] terms = new int[count][];
+		for (int i = 0; i < count; i++) {
+			terms[i] = PartialIndex.renumber(partial.getTerms(i), wordIds);
+			recordDoc(firstDocId + i, terms[i].length, PartialIndex.renumber(partial.getDistinct(i), wordIds));
+		}
+		return terms;
+	}
+
+	/**
+	 * Gives a song the next doc ID, with room for its length in docLengths; the
+	 * caller holds the invertedIndex lock
+	 * 
+	 * @param song the song being indexed
+	 * @return the song's doc ID
+	 */
+	private int newDocId(Song song) {
+		int docId = songsById.size();
+		songsById.add(song);
+		forwardIndex.add(null);
+		if (docId == docLengths.length) {
+			docLengths = Arrays.copyOf(docLengths, docLengths.length * 2);
+		}
+		song.setDocId(docId);
+		songsIndexing++;
+		indexVersion++;
+		return docId;
+	}
+
+	/**
+	 * Tokenizes a song's lyrics once into a partial index of its own, without
+	 * locking, then adds its postings to the inverted index under a single hold
+	 * of the invertedIndex lock, so other threads only wait for the merge and a
+	 * search never sees part of a song
+	 * 
+	 * @param song     the song being indexed
+	 * @param docId    the song's doc ID
+	 * @param analyzer turns the lyrics into keywords
+	 */
+	private void indexLyrics(Song song, int docId, Analyzer analyzer) {
+		Song[] songs = { song };
+		PartialIndex partial = null;
+		boolean finished = false;
+		try {
+			partial = new PartialIndex(songs, 0, 1, docId, analyzer);
+			synchronized (invertedIndex) {
+				finishSongs(songs, partial, docId);
+				finished = true;
+			}
+		} finally {
+			if (!finished) {
+				synchronized (invertedIndex) {
+					abandonSongs(songs, partial, docId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the postings of a batch of songs with doc IDs handed out by newDocId,
+	 * then records each song's word IDs; the caller holds the invertedIndex lock
+	 * 
+	 * @param songs      the songs being indexed
+	 * @param partial    the partial index of the songs
+	 * @param firstDocId the doc ID of songs[0]; the rest follow in order
+	 */
+	private void finishSongs(Song[] songs, PartialIndex partial, int firstDocId) {
+		int[][] terms = mergePartial(partial, firstDocId, songs.length);
+		for (int i = 0; i < songs.length; i++) {
+			songs[i].setTermIds(terms[i]);
+		}
+		songsIndexing -= songs.length;
+		indexVersion++;
+		invertedIndex.notifyAll(); // Wake deletes waiting for these songs
+	}
+
+	/**
+	 * Takes back a batch of songs with doc IDs handed out by newDocId whose
+	 * tokenizing or merge failed: any postings the merge already added are
+	 * removed, and the songs leave songsMap and free their doc IDs, as if
+	 * deleted. The caller holds the invertedIndex lock
+	 * 
+	 * @param songs      the songs being indexed
+	 * @param partial    the partial index of the songs, or null if it wasn't built
+	 * @param firstDocId the doc ID of songs[0]; the rest follow in order
+	 */
+	private void abandonSongs(Song[] songs, PartialIndex partial, int firstDocId) {
+		if (partial != null) {
+			for (int localId = 0; localId < partial.getNumWords(); localId++) {
+				WordID wordId = wordMap.get(partial.getWordId(localId));
+				if (wordId == null) {
+					continue;
+				}
+				PostingList postings = invertedIndex.get(wordId.getId());
+				for (int i = 0; i < songs.length; i++) {
+					postings.remove(firstDocId + i);
+				}
+				topWords.update(wordId, postings.size());
+				if (postings.isEmpty()) {
+					removeWord(wordId.getId());
+				}
+			}
+		}
+		for (int i = 0; i < songs.length; i++) {
+			int docId = firstDocId + i;
+			songsMap.delete(songs[i]);
+			if (forwardIndex.get(docId) != null) {
+				totalDocLength -= docLengths[docId];
+			}
+			forwardIndex.set(docId, null);
+			songsById.set(docId, null);
+			songs[i].setTermIds(null);
+			songs[i].setDocId(-1);
+		}
+		songsIndexing -= songs.length;
+		indexVersion++;
+		invertedIndex.notifyAll(); // Wake deletes waiting for these songs
+	}
+
+	/**
+	 * Records a song's length and distinct word IDs by doc ID, in the same hold of
+	 * the invertedIndex lock that adds its postings, so topK never finds a song
+	 * in a posting list before its length is known; the caller holds the lock
+	 * 
+	 * @param docId   the song's doc ID
+	 * @param length  the number of words in the song's filtered lyrics
+	 * @param wordIds the IDs of the song's distinct words
+	 */
+	private void recordDoc(int docId, int length, int[] wordIds) {
+		docLengths[docId] = length;
+		totalDocLength += length;
+		forwardIndex.set(docId, wordIds);
+	}
+
+	/**
+	 * Returns a word's ID, giving the word an ID and an empty posting list first
+	 * if it is new; a deleted word's ID is reused before a new one is added. The
+	 * caller holds the invertedIndex lock
+	 * 
+	 * @param key the word, with any ID; a new WordID is only made for a new word
+	 * @return the word's ID
+	 */
+	private int wordIdOf(WordID key) {
+		int nextId = numFreeWordIds > 0 ? freeWordIds[numFreeWordIds - 1] : invertedIndex.size();
+		WordID wordId = wordMap.getOrAdd(key, k -> new WordID(k.getWord(), nextId));
+		if (wordId.getId() == nextId) {
+			// New word detected and added to wordMap with the next ID;
+			// give it an empty posting list in invertedIndex
+			if (nextId == invertedIndex.size()) {
+				invertedIndex.add(new PostingList());
+				wordsById.add(wordId);
+			} else {
+				numFreeWordIds--;
+				invertedIndex.set(nextId, new PostingList());
+				wordsById.set(nextId, wordId);
+			}
+			dictionary.insert(wordId, WORD_ORDER);
+			fuzzyIndex.add(wordId.getWord());
+		}
+		return wordId.getId();
+	}
+
+	/**
+	 * Returns the fraction of word IDs belonging to deleted words, i.e. the
+	 * slots compactWordIds would remove from the inverted index
+	 * 
+	 * @return the unused share of the word IDs, from 0 to 1
+	 */
+	public double getWordIdFragmentation() {
+		synchronized (invertedIndex) {
+			return invertedIndex.isEmpty() ? 0 : numFreeWordIds * 1.0 / invertedIndex.size();
+		}
+	}
+
+	/**
+	 * Renumbers the words 0, 1, 2, ... in their current order, dropping the IDs
+	 * of deleted words so the inverted index shrinks to the words in use. The
+	 * new IDs, wordMap, dictionary and song word IDs are built from a snapshot
+	 * without holding the invertedIndex lock, so searches keep running, and
+	 * swapped in under the lock at the end. If a song was added or deleted
+	 * meanwhile, the snapshot is stale and nothing changes
+	 * 
+	 * @return true if the word IDs were compacted, false if the index changed
+	 *         first
+	 */
+	public boolean compactWordIds() {
+		long version;
+		ArrayList<WordID> words;
+		ArrayList<PostingList> postings;
+		ArrayList<int[]> forward;
+		int[][] terms;
+		synchronized (invertedIndex) {
+			if (songsIndexing > 0) {
+				return false;
+			}
+			version = indexVersion;
+			words = new ArrayList<>(wordsById);
+			postings = new ArrayList<>(invertedIndex);
+			forward = new ArrayList<>(forwardIndex);
+			terms = new int[songsById.size()][];
+			for (int docId = 0; docId < terms.length; docId++) {
+				Song song = songsById.get(docId);
+				terms[docId] = song == null ? null : song.getTermIds();
+			}
+		}
+
+		int[] newIds = new int[words.size()];
+		ArrayList<WordID> newWords = new ArrayList<>(words.size());
+		ArrayList<PostingList> newPostings = new ArrayList<>(words.size());
+		ElementTable<WordID> newWordMap = newTable(tableType);
+		for (int id = 0; id < words.size(); id++) {
+			if (words.get(id) == null) {
+				newIds[id] = -1;
+				continue;
+			}
+			newIds[id] = newWords.size();
+			WordID wordId = new WordID(words.get(id).getWord(), newWords.size());
+			newWords.add(wordId);
+			newPostings.add(postings.get(id));
+			newWordMap.add(wordId);
+		}
+		WordID[] sorted = newWords.toArray(new WordID[0]);
+		Arrays.sort(sorted, WORD_ORDER);
+		BST<WordID> newDictionary = new BST<>(sorted, WORD_ORDER, true);
+		ArrayList<int[]> newForward = new ArrayList<>(forward.size());
+		for (int[] ids : forward) {
+			newForward.add(ids == null ? null : PartialIndex.renumber(ids.clone(), newIds));
+		}
+		for (int docId = 0; docId < terms.length; docId++) {
+			if (terms[docId] != null) {
+				terms[docId] = PartialIndex.renumber(terms[docId].clone(), newIds);
+			}
+		}
+
+		synchronized (invertedIndex) {
+			if (indexVersion != version || songsIndexing > 0) {
+				return false;
+			}
+			wordMap = newWordMap;
+			dictionary = newDictionary;
+			topWords.clear();
+			invertedIndex.clear();
+			invertedIndex.addAll(newPostings);
+			invertedIndex.trimToSize();
+			wordsById.clear();
+			wordsById.addAll(newWords);
+			wordsById.trimToSize();
+			forwardIndex.clear();
+			forwardIndex.addAll(newForward);
+			for (int docId = 0; docId < terms.length; docId++) {
+				if (terms[docId] != null) {
+					songsById.get(docId).setTermIds(terms[docId]);
+				}
+			}
+			numFreeWordIds = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the analyzer that turns lyrics and queries into keywords
+	 * 
+	 * @return the current Analyzer
+	 */
+	public Analyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	/**
+	 * Rebuilds the index of every song with a new analyzer, e.g. after changing
+	 * the stop words or turning on stemming. The new index is built on the side
+	 * while the old one keeps serving searches, then swapped in under the
+	 * invertedIndex lock; if a song is added or deleted meanwhile, the rebuild
+	 * starts over after a wait that doubles each time, up to REINDEX_ATTEMPTS
+	 * tries
+	 * 
+	 * @param newAnalyzer the analyzer to index with
+	 * @return true if the new index was swapped in, false if the index kept
+	 *         changing or the thread was interrupted, leaving the old one
+	 */
+	public boolean reindex(Analyzer newAnalyzer) {
+		long backoff = REINDEX_BACKOFF_MS;
+		for (int attempt = 1;; attempt++) {
+			if (tryReindex(newAnalyzer)) {
+				return true;
+			}
+			if (attempt == REINDEX_ATTEMPTS) {
+				return false;
+			}
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			backoff *= 2;
+		}
+	}
+
+	/**
+	 * Starts reindexing with a new analyzer on a background thread; searches use
+	 * the old index until the new one is swapped in
+	 * 
+	 * @param newAnalyzer the analyzer to index with
+	 * @return the running thread, to join if the caller needs to wait
+	 */
+	public Thread reindexInBackground(Analyzer newAnalyzer) {
+		Thread thread = new Thread(() -> reindex(newAnalyzer), "reindex");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * Builds a new index of a snapshot of the songs and swaps it in if the index
+	 * didn't change meanwhile. The songs get new doc IDs 0, 1, 2, ... in their
+	 * current order
+	 * 
+	 * @param newAnalyzer the analyzer to index with
+	 * @return true if the new index was swapped in, false if the index changed
+	 *         first
+	 */
+	private boolean tryReindex(Analyzer newAnalyzer) {
+		long version;
+		Song[] songs;
+		synchronized (invertedIndex) {
+			if (songsIndexing > 0) {
+				return false;
 			}
-			invertedIndex.get(wordId.getId()).insert(song, new SongNameComparator());
+			version = indexVersion;
+			ArrayList<Song> live = new ArrayList<>(songsById.size());
+			for (Song song : songsById) {
+				if (song != null) {
+					live.add(song);
+				}
+			}
+			songs = live.toArray(new Song[0]);
 		}
+
+		SearchEngine rebuilt = new SearchEngine(tableType, newAnalyzer);
+		int[][] terms = rebuilt.indexSnapshot(songs, Runtime.getRuntime().availableProcessors());
+
+		synchronized (invertedIndex) {
+			if (indexVersion != version || songsIndexing > 0) {
+				return false;
+			}
+			analyzer = newAnalyzer;
+			wordMap = rebuilt.wordMap;
+			dictionary = rebuilt.dictionary;
+			fuzzyIndex = rebuilt.fuzzyIndex;
+			topWords.clear();
+			invertedIndex.clear();
+			invertedIndex.addAll(rebuilt.invertedIndex);
+			invertedIndex.trimToSize();
+			wordsById.clear();
+			wordsById.addAll(rebuilt.wordsById);
+			wordsById.trimToSize();
+			songsById.clear();
+			songsById.addAll(rebuilt.songsById);
+			forwardIndex.clear();
+			forwardIndex.addAll(rebuilt.forwardIndex);
+			docLengths = rebuilt.docLengths;
+			totalDocLength = rebuilt.totalDocLength;
+			numFreeWordIds = 0;
+			for (int docId = 0; docId < songs.length; docId++) {
+				songs[docId].setDocId(docId);
+				songs[docId].setTermIds(terms[docId]);
+			}
+			indexVersion++;
+		}
+		return true;
+	}
+
+	/**
+	 * Indexes songs into this empty engine as doc IDs 0, 1, 2, ... without
+	 * changing the Song objects, which still belong to another engine
+	 * 
+	 * @param songs   the songs to index
+	 * @param threads the number of worker threads
+	 * @return the word IDs of each song's filtered lyrics, in order
+	 */
+	private int[][] indexSnapshot(Song[] songs, int threads) {
+		if (songs.length == 0) {
+			return new int[0][];
+		}
+		PartialIndex partial = buildPartial(songs, 0, analyzer, threads);
+		synchronized (invertedIndex) {
+			for (Song song : songs) {
+				songsById.add(song);
+				forwardIndex.add(null);
+			}
+			docLengths = new int[songs.length];
+			return mergePartial(partial, 0, songs.length);
+		}
+	}
+
+	/**
+	 * Compresses every posting list into delta and variable-byte encoded form,
+	 * e.g. once a large import is done. A list is decoded again the next time a
+	 * song containing its word is added or deleted
+	 */
+	public void compressIndex() {
+		synchronized (invertedIndex) {
+			for (PostingList postings : invertedIndex) {
+				if (postings != null) {
+					postings.compress();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns roughly how many bytes the posting lists take up. Used as a
+	 * statistic
+	 * 
+	 * @return the size of the posting lists in bytes
+	 */
+	public long getIndexBytes() {
+		long bytes = 0;
+		synchronized (invertedIndex) {
+			for (PostingList postings : invertedIndex) {
+				if (postings != null) {
+					bytes += postings.getStorageBytes();
+				}
+			}
+		}
+		return bytes;
 	}
 
 	/**
@@ -193,7 +916,34 @@ public class SearchEngine {
 	 * @return the number of unique words in the HashTable wordMap
 	 */
 	public int getTotalUniqueWords() {
-		return this.wordMap.getNumElements();
+		synchronized (invertedIndex) {
+			return this.wordMap.getNumElements();
+		}
+	}
+
+	/**
+	 * Returns a song's filtered lyrics, the keywords it was indexed under
+	 * separated by single spaces. They are rebuilt from the song's word IDs; a
+	 * song that isn't indexed is filtered with the current analyzer instead
+	 * 
+	 * @param song the song
+	 * @return the song's filtered lyrics
+	 */
+	public String getFilteredLyrics(Song song) {
+		synchronized (invertedIndex) {
+			int[] termIds = song.getTermIds();
+			if (termIds == null) {
+				return analyzer.filter(song.getUnfilteredLyrics());
+			}
+			StringBuilder lyrics = new StringBuilder();
+			for (int id : termIds) {
+				if (lyrics.length() > 0) {
+					lyrics.append(' ');
+				}
+				lyrics.append(wordsById.get(id).getWord());
+			}
+			return lyrics.toString();
+		}
 	}
 
 	/**
@@ -226,18 +976,519 @@ public class SearchEngine {
 	}
 
 	/**
-	 * returns a BST of songs whose lyrics contain the word passed in
+	 * returns a BST of songs whose lyrics contain the word passed in, after the
+	 * analyzer normalizes it as it did the lyrics
 	 * 
 	 * @param keyword the word to search for
 	 * @return a BST of songs with the given word
 	 */
 	public BST<Song> searchByKeyword(String keyword) {
-		WordID wordId = wordMap.get(new WordID(keyword, 0));
-		if (wordId == null) {
+		int[] docIds;
+		synchronized (invertedIndex) {
+			WordID wordId = wordMap.get(new WordID(analyzer.normalize(keyword), 0));
+			if (wordId == null) {
+				return null;
+			}
+			docIds = invertedIndex.get(wordId.getId()).toArray();
+		}
+		return toResultTree(docIds);
+	}
+
+	/**
+	 * returns a BST of songs whose lyrics contain a word within a few typos of
+	 * the keyword, e.g. "screamin" finds songs with "screaming". The keyword
+	 * goes through the analyzer like an indexed word, except that it is never
+	 * dropped as a stop word
+	 * 
+	 * @param keyword     the word to search for
+	 * @param maxDistance the most letters inserted, deleted or changed, 0 to 2
+	 * @return a BST of songs with a matching word, or null if there are none
+	 * @throws IllegalArgumentException if maxDistance is outside 0 to 2
+	 */
+	public BST<Song> searchFuzzy(String keyword, int maxDistance) throws IllegalArgumentException {
+		int[][] docIds;
+		synchronized (invertedIndex) {
+			ArrayList<String> words = fuzzyMatch(keyword, maxDistance).getWords();
+			docIds = new int[words.size()][];
+			for (int i = 0; i < docIds.length; i++) {
+				docIds[i] = postingsOf(words.get(i));
+			}
+		}
+		if (docIds.length == 0) {
 			return null;
 		}
-		BST<Song> resultTree = invertedIndex.get(wordId.getId());
-		return resultTree;
+		return toResultTree(PostingList.union(docIds));
+	}
+
+	/**
+	 * Returns the indexed words within a few typos of the keyword, analyzed as in
+	 * searchFuzzy, along with how many indexed words were checked and how long
+	 * the lookup took, e.g. to suggest corrections when a search finds nothing
+	 * 
+	 * @param keyword     the word to match
+	 * @param maxDistance the most letters inserted, deleted or changed, 0 to 2
+	 * @return the matching words, in no particular order, and the work done
+	 * @throws IllegalArgumentException if maxDistance is outside 0 to 2
+	 */
+	public FuzzyIndex.Result fuzzyMatch(String keyword, int maxDistance) throws IllegalArgumentException {
+		if (maxDistance < 0 || maxDistance > FUZZY_MAX_DISTANCE) {
+			throw new IllegalArgumentException("fuzzyMatch: maxDistance is outside 0.." + FUZZY_MAX_DISTANCE);
+		}
+		String word = analyzer.normalize(keyword);
+		if (word.isEmpty()) {
+			return new FuzzyIndex.Result(new ArrayList<>(), 0, 0);
+		}
+		synchronized (invertedIndex) {
+			return fuzzyIndex.lookup(word, maxDistance);
+		}
+	}
+
+	/**
+	 * Returns the indexed words that start with a prefix, in alphabetical order.
+	 * The prefix goes through the analyzer like an indexed word, except that it
+	 * is never dropped as a stop word. The dictionary is walked in order from the
+	 * first word not before the prefix, so only the words returned are visited
+	 * 
+	 * @param prefix the start of the words
+	 * @param limit  the most words to return
+	 * @return up to limit words starting with prefix
+	 * @throws IllegalArgumentException if limit &lt; 0
+	 */
+	public ArrayList<String> searchByPrefix(String prefix, int limit) throws IllegalArgumentException {
+		if (limit < 0) {
+			throw new IllegalArgumentException("searchByPrefix: limit is < 0");
+		}
+		ArrayList<String> words = new ArrayList<>();
+		String start = analyzer.normalize(prefix);
+		synchronized (invertedIndex) {
+			Iterator<WordID> it = dictionary.tailIterator(new WordID(start, 0), WORD_ORDER);
+			while (words.size() < limit && it.hasNext()) {
+				String word = it.next().getWord();
+				if (!word.startsWith(start)) {
+					break;
+				}
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Suggests completions of a partly typed keyword: the indexed words starting
+	 * with the prefix that appear in the most songs, most common first. Words in
+	 * the same number of songs are in alphabetical order. The prefix is analyzed
+	 * as in searchByPrefix. A prefix of up to TOP_WORDS_PREFIX_LENGTH characters,
+	 * which a large share of the dictionary may start with, is answered from the
+	 * prefix's cached most common words when they can tell; otherwise every word
+	 * with the prefix is visited, keeping the best of them in a min-heap, and a
+	 * short prefix's best TOP_WORDS_CAPACITY words are cached for next time
+	 * 
+	 * @param prefix the start of the words
+	 * @param limit  the most words to return
+	 * @return up to limit words starting with prefix
+	 * @throws IllegalArgumentException if limit &lt; 0
+	 */
+	public ArrayList<String> autocomplete(String prefix, int limit) throws IllegalArgumentException {
+		if (limit < 0) {
+			throw new IllegalArgumentException("autocomplete: limit is < 0");
+		}
+		ArrayList<String> words = new ArrayList<>();
+		if (limit == 0) {
+			return words;
+		}
+		String start = analyzer.normalize(prefix);
+		synchronized (invertedIndex) {
+			ArrayList<String> cached = topWords.lookup(start, limit);
+			if (cached != null) {
+				return cached;
+			}
+
+			// For a short prefix, find one word more than its cached list holds,
+			// to bound the words left out of it
+			boolean cache = topWords.covers(start, limit);
+			int keep = cache ? topWords.getCapacity() + 1 : limit;
+			// The least common word is at the head; ties put the later word there
+			PriorityQueue<WordID> best = new PriorityQueue<>(keep, (a, b) -> {
+				int diff = invertedIndex.get(a.getId()).size() - invertedIndex.get(b.getId()).size();
+				return diff != 0 ? diff : b.getWord().compareTo(a.getWord());
+			});
+			Iterator<WordID> it = dictionary.tailIterator(new WordID(start, 0), WORD_ORDER);
+			while (it.hasNext()) {
+				WordID wordId = it.next();
+				if (!wordId.getWord().startsWith(start)) {
+					break;
+				}
+				best.add(wordId);
+				if (best.size() > keep) {
+					best.poll();
+				}
+			}
+
+			int count = best.size();
+			WordID[] ranked = new WordID[count];
+			int[] frequencies = new int[count];
+			for (int i = count - 1; i >= 0; i--) {
+				ranked[i] = best.poll();
+				frequencies[i] = invertedIndex.get(ranked[i].getId()).size();
+			}
+			if (cache) {
+				int listed = Math.min(count, topWords.getCapacity());
+				topWords.store(start, ranked, frequencies, listed, count > listed ? frequencies[listed] : 0);
+			}
+			for (int i = 0; i < Math.min(limit, count); i++) {
+				words.add(ranked[i].getWord());
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Returns a BST of the songs matching a boolean keyword query. Keywords next
+	 * to each other, or joined by AND, must all appear; OR separates groups of
+	 * which at least one must match; NOT before a keyword excludes songs with
+	 * it. AND binds tighter than OR, e.g. "fire AND rain NOT hello OR skyfall".
+	 * Words in double quotes must appear as a phrase, and a following ~N lets up
+	 * to N other words come between each of them, e.g. "set fire" ~3. Keywords
+	 * are filtered like lyrics, so stop words are ignored. Each group is
+	 * evaluated on the doc ID posting lists, smallest list first, and only the
+	 * final result is turned into a BST
+	 * 
+	 * @param query the query to evaluate
+	 * @return a BST of matching songs, or null if none match
+	 */
+	public BST<Song> search(String query) {
+		ArrayList<int[]> groups = new ArrayList<>();
+		ArrayList<int[]> required = new ArrayList<>();
+		ArrayList<int[]> excluded = new ArrayList<>();
+		boolean negate = false;
+		String[] tokens = query.trim().split("\\s+");
+		synchronized (invertedIndex) {
+			for (int i = 0; i < tokens.length; i++) {
+				String token = tokens[i];
+				int[] docIds;
+				if (token.isEmpty() || token.equals("AND")) {
+					continue;
+				} else if (token.equals("OR")) {
+					groups.add(evaluateGroup(required, excluded));
+					required.clear();
+					excluded.clear();
+					negate = false;
+					continue;
+				} else if (token.equals("NOT")) {
+					negate = true;
+					continue;
+				} else if (token.startsWith("\"")) {
+					// Gather the phrase up to the closing quote, and its slop if given
+					StringBuilder phrase = new StringBuilder(token.substring(1));
+					while (!phrase.toString().endsWith("\"") && i + 1 < tokens.length) {
+						phrase.append(' ').append(tokens[++i]);
+					}
+					int slop = 0;
+					if (i + 1 < tokens.length && tokens[i + 1].matches("~\\d+")) {
+						slop = Integer.parseInt(tokens[++i].substring(1));
+					}
+					String words = phrase.toString();
+					if (words.endsWith("\"")) {
+						words = words.substring(0, words.length() - 1);
+					}
+					docIds = phraseDocIds(analyzer.filter(words), slop);
+				} else {
+					String word = analyzer.filter(token);
+					docIds = word.isEmpty() ? null : postingsOf(word);
+				}
+				if (docIds != null) {
+					(negate ? excluded : required).add(docIds);
+				}
+				negate = false;
+			}
+			groups.add(evaluateGroup(required, excluded));
+		}
+
+		int[] docIds = groups.size() == 1 ? groups.get(0) : PostingList.union(groups.toArray(new int[0][]));
+		if (docIds.length == 0) {
+			return null;
+		}
+		return toResultTree(docIds);
+	}
+
+	/**
+	 * Returns a BST of the songs whose lyrics contain the given words in order,
+	 * each at most slop words after the one before it. Only songs containing
+	 * every word are checked, using the positions stored in the posting lists
+	 * 
+	 * @param phrase the words to look for
+	 * @param slop   how many other words may come between consecutive words; 0
+	 *               for an exact phrase
+	 * @return a BST of matching songs, or null if none match
+	 */
+	public BST<Song> searchPhrase(String phrase, int slop) {
+		int[] docIds;
+		synchronized (invertedIndex) {
+			docIds = phraseDocIds(analyzer.filter(phrase), slop);
+		}
+		if (docIds == null || docIds.length == 0) {
+			return null;
+		}
+		return toResultTree(docIds);
+	}
+
+	/**
+	 * Returns the doc IDs of the songs matching a phrase; the caller holds the
+	 * invertedIndex lock
+	 * 
+	 * @param words the filtered words of the phrase
+	 * @param slop  how many other words may come between consecutive words
+	 * @return the sorted doc IDs, or null if the phrase has no words
+	 */
+	private int[] phraseDocIds(String words, int slop) {
+		if (words.isEmpty()) {
+			return null;
+		}
+		String[] phraseWords = words.trim().split("\\s+");
+		PostingList[] lists = new PostingList[phraseWords.length];
+		for (int i = 0; i < phraseWords.length; i++) {
+			WordID wordId = wordMap.get(new WordID(phraseWords[i], 0));
+			if (wordId == null) {
+				return new int[0];
+			}
+			lists[i] = invertedIndex.get(wordId.getId());
+		}
+
+		// Candidates contain every word; smallest list first
+		PostingList[] bySize = lists.clone();
+		Arrays.sort(bySize, (a, b) -> Integer.compare(a.size(), b.size()));
+		int[] candidates = bySize[0].toArray();
+		for (int i = 1; i < bySize.length && candidates.length > 0; i++) {
+			candidates = PostingList.intersect(candidates, bySize[i].toArray());
+		}
+
+		int[] docIds = new int[candidates.length];
+		int count = 0;
+		for (int docId : candidates) {
+			if (PostingList.matchesPhrase(lists, docId, slop)) {
+				docIds[count++] = docId;
+			}
+		}
+		return Arrays.copyOf(docIds, count);
+	}
+
+	/**
+	 * Returns the doc IDs in every required list and in none of the excluded ones;
+	 * a group with no required lists starts from every song. The caller holds the
+	 * invertedIndex lock
+	 * 
+	 * @param required the sorted doc IDs of the terms that must appear
+	 * @param excluded the sorted doc IDs of the terms that must not appear
+	 * @return the sorted doc IDs, empty if the group has no terms
+	 */
+	private int[] evaluateGroup(ArrayList<int[]> required, ArrayList<int[]> excluded) {
+		if (required.isEmpty() && excluded.isEmpty()) {
+			return new int[0];
+		}
+		ArrayList<int[]> lists = new ArrayList<>(required);
+		lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+		int[] docIds = lists.isEmpty() ? allDocIds() : lists.get(0);
+		for (int i = 1; i < lists.size() && docIds.length > 0; i++) {
+			docIds = PostingList.intersect(docIds, lists.get(i));
+		}
+		for (int[] exclude : excluded) {
+			if (docIds.length == 0) {
+				break;
+			}
+			docIds = PostingList.subtract(docIds, exclude);
+		}
+		return docIds;
+	}
+
+	/**
+	 * Returns the doc IDs of the songs containing a word; the caller holds the
+	 * invertedIndex lock
+	 * 
+	 * @param word the filtered word
+	 * @return the sorted doc IDs, empty if no song contains it
+	 */
+	private int[] postingsOf(String word) {
+		WordID wordId = wordMap.get(new WordID(word, 0));
+		if (wordId == null) {
+			return new int[0];
+		}
+		return invertedIndex.get(wordId.getId()).toArray();
+	}
+
+	/**
+	 * Returns the k songs most relevant to the query's keywords, ranked by BM25.
+	 * Operators and quotes are not interpreted; each distinct keyword adds to the
+	 * score of the songs containing it. The best k so far are kept in a min-heap,
+	 * and once it is full, keywords whose combined best possible score can't beat
+	 * the k-th best (MaxScore) no longer produce candidates of their own: they
+	 * are only looked up, by galloping, for songs found through the others, so a
+	 * very common keyword is rarely scored for every posting
+	 * 
+	 * @param query the keywords
+	 * @param k     the number of songs to return
+	 * @return up to k songs, most relevant first
+	 * @throws IllegalArgumentException if k &lt;= 0
+	 */
+	public ArrayList<Song> topK(String query, int k) throws IllegalArgumentException {
+		if (k <= 0) {
+			throw new IllegalArgumentException("topK: k is <= 0");
+		}
+		ArrayList<Song> results = new ArrayList<>();
+		String words = analyzer.filter(query);
+		if (words.isEmpty()) {
+			return results;
+		}
+
+		synchronized (invertedIndex) {
+			// Gather each distinct keyword's postings, idf and upper bound
+			int numDocs = songsMap.getNumElements();
+			double avgDocLength = numDocs == 0 ? 0 : totalDocLength * 1.0 / numDocs;
+			ArrayList<int[]> docLists = new ArrayList<>();
+			ArrayList<int[]> freqLists = new ArrayList<>();
+			ArrayList<Double> idfs = new ArrayList<>();
+			ArrayList<String> seen = new ArrayList<>();
+			for (String word : words.trim().split("\\s+")) {
+				WordID wordId = wordMap.get(new WordID(word, 0));
+				if (wordId == null || seen.contains(wordId.getWord())) {
+					continue;
+				}
+				seen.add(wordId.getWord());
+				PostingList postings = invertedIndex.get(wordId.getId());
+				docLists.add(postings.toArray());
+				freqLists.add(postings.getFrequencies());
+				idfs.add(Math.log(1 + (numDocs - postings.size() + 0.5) / (postings.size() + 0.5)));
+			}
+			int n = docLists.size();
+			if (n == 0) {
+				return results;
+			}
+
+			// Order the keywords by upper bound, lowest first; a keyword can add at
+			// most idf * (k1 + 1) to a score
+			Integer[] order = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Double.compare(idfs.get(a), idfs.get(b)));
+			int[][] docs = new int[n][];
+			int[][] freqs = new int[n][];
+			double[] idf = new double[n];
+			double[] prefixBound = new double[n]; // Sum of the bounds of 0..i
+			for (int i = 0; i < n; i++) {
+				docs[i] = docLists.get(order[i]);
+				freqs[i] = freqLists.get(order[i]);
+				idf[i] = idfs.get(order[i]);
+				prefixBound[i] = idf[i] * (BM25_K1 + 1) + (i > 0 ? prefixBound[i - 1] : 0);
+			}
+
+			// Heap entries are {score, doc ID}, worst first
+			PriorityQueue<double[]> heap = new PriorityQueue<>(k, (a, b) -> a[0] != b[0]
+					? Double.compare(a[0], b[0]) : Double.compare(b[1], a[1]));
+			int[] cursor = new int[n];
+			int firstEssential = 0;
+			double threshold = 0;
+			while (true) {
+				// The next candidate is the smallest doc ID left in an essential list
+				int docId = Integer.MAX_VALUE;
+				for (int i = firstEssential; i < n; i++) {
+					if (cursor[i] < docs[i].length && docs[i][cursor[i]] < docId) {
+						docId = docs[i][cursor[i]];
+					}
+				}
+				if (docId == Integer.MAX_VALUE) {
+					break;
+				}
+
+				double norm = BM25_K1 * (1 - BM25_B + BM25_B * docLengths[docId] / avgDocLength);
+				double score = 0;
+				for (int i = firstEssential; i < n; i++) {
+					if (cursor[i] < docs[i].length && docs[i][cursor[i]] == docId) {
+						int tf = freqs[i][cursor[i]++];
+						score += idf[i] * tf * (BM25_K1 + 1) / (tf + norm);
+					}
+				}
+				for (int i = firstEssential - 1; i >= 0; i--) {
+					if (score + prefixBound[i] <= threshold) {
+						break; // Can't make the heap even with every remaining keyword
+					}
+					int index = Arrays.binarySearch(docs[i], cursor[i], docs[i].length, docId);
+					cursor[i] = index >= 0 ? index : -index - 1;
+					if (index >= 0) {
+						int tf = freqs[i][index];
+						score += idf[i] * tf * (BM25_K1 + 1) / (tf + norm);
+					}
+				}
+
+				if (heap.size() < k) {
+					heap.add(new double[] { score, docId });
+				} else if (score > threshold) {
+					heap.poll();
+					heap.add(new double[] { score, docId });
+				}
+				if (heap.size() == k) {
+					threshold = heap.peek()[0];
+					while (firstEssential < n && prefixBound[firstEssential] <= threshold) {
+						firstEssential++;
+					}
+				}
+			}
+
+			while (!heap.isEmpty()) {
+				results.add(songsById.get((int) heap.poll()[1]));
+			}
+		}
+		Collections.reverse(results);
+		return results;
+	}
+
+	/**
+	 * Returns the doc IDs of every indexed song; the caller holds the
+	 * invertedIndex lock
+	 * 
+	 * @return the sorted doc IDs
+	 */
+	private int[] allDocIds() {
+		int[] docIds = new int[songsById.size()];
+		int count = 0;
+		for (int i = 0; i < songsById.size(); i++) {
+			if (songsById.get(i) != null) {
+				docIds[count++] = i;
+			}
+		}
+		return Arrays.copyOf(docIds, count);
+	}
+
+	/**
+	 * Builds a BST of minimal height, ordered by title, of the songs with the
+	 * given doc IDs. Songs deleted since the doc IDs were looked up are left out
+	 * 
+	 * @param docIds the doc IDs of the songs
+	 * @return a BST of the songs
+	 */
+	private BST<Song> toResultTree(int[] docIds) {
+		SongNameComparator cmp = new SongNameComparator();
+		Song[] songs = new Song[docIds.length];
+		int found = 0;
+		synchronized (invertedIndex) {
+			for (int docId : docIds) {
+				Song song = songsById.get(docId);
+				if (song != null) {
+					songs[found++] = song;
+				}
+			}
+		}
+		songs = Arrays.copyOf(songs, found);
+		Arrays.sort(songs, cmp);
+
+		// Drop songs sharing a title, as inserting them one by one would
+		int count = 0;
+		for (int i = 0; i < songs.length; i++) {
+			if (count == 0 || cmp.compare(songs[count - 1], songs[i]) != 0) {
+				songs[count++] = songs[i];
+			}
+		}
+		return new BST<>(Arrays.copyOf(songs, count), cmp, true);
 	}
 
 	/**
@@ -30,9 +30,15 @@ public class Song implements Comparable<Song> {
 	 */
 	private String unfilteredLyrics;
 	/**
-	 * This Song's filtered lyrics (invalid keywords removed)
+	 * The word IDs of this Song's filtered lyrics (invalid keywords removed), in
+	 * order, given by the SearchEngine that indexed it; null if not indexed
 	 */
-	private String filteredLyrics;
+	private int[] termIds;
+	/**
+	 * The dense ID a SearchEngine gave this Song when indexing it, -1 if not
+	 * indexed
+	 */
+	private int docId;
 
 	/* CONSTRUCTORS */
 	/**
@@ -48,7 +54,8 @@ public class Song implements Comparable<Song> {
 		this.year = 0;
 		this.album = "";
 		this.unfilteredLyrics = "";
-		this.filteredLyrics = "";
+		this.termIds = null;
+		this.docId = -1;
 	}
 
 	/**
@@ -64,7 +71,8 @@ public class Song implements Comparable<Song> {
 		this.year = year;
 		this.album = album;
 		this.unfilteredLyrics = lyrics;
-		this.filteredLyrics = removeWords(lyrics);
+		this.termIds = null;
+		this.docId = -1;
 	}
 
 	/* ACCESSORS */
@@ -105,12 +113,22 @@ public class Song implements Comparable<Song> {
 	}
 
 	/**
-	 * Returns the filtered lyrics of the song.
+	 * Returns the word IDs of the song's filtered lyrics; the SearchEngine that
+	 * indexed the song turns them back into words with getFilteredLyrics.
+	 * 
+	 * @return The word IDs in lyric order, or null if the song isn't indexed.
+	 */
+	public int[] getTermIds() {
+		return termIds;
+	}
+
+	/**
+	 * Returns the doc ID the search engine indexed the song under.
 	 * 
-	 * @return The song's filtered lyrics.
+	 * @return The song's doc ID, or -1 if it isn't indexed.
 	 */
-	public String getFilteredLyrics() {
-		return filteredLyrics;
+	public int getDocId() {
+		return docId;
 	}
 
 	/* MUTATORS */
@@ -142,14 +160,35 @@ public class Song implements Comparable<Song> {
 	}
 
 	/**
-	 * Sets new lyrics for the song. Note: sets both unfiltered and filtered
-	 * variables at the same time
+	 * Sets new lyrics for the song. Note: clears the word IDs, as they belong to
+	 * the old lyrics; the song has to be indexed again
 	 * 
 	 * @param lyrics The new lyrics.
 	 */
 	public void setLyrics(String lyrics) {
 		this.unfilteredLyrics = lyrics;
-		this.filteredLyrics = removeWords(lyrics);
+		this.termIds = null;
+	}
+
+	/**
+	 * Sets the doc ID the song is indexed under; only the search engine should
+	 * call this.
+	 * 
+	 * @param docId The new doc ID, or -1 when the song is removed from the index.
+	 */
+	public void setDocId(int docId) {
+		this.docId = docId;
+	}
+
+	/**
+	 * Sets the word IDs of the song's filtered lyrics; only the search engine
+	 * should call this.
+	 * 
+	 * @param termIds The word IDs in lyric order, or null when the song is
+	 *                removed from the index.
+	 */
+	public void setTermIds(int[] termIds) {
+		this.termIds = termIds;
 	}
 
 	/* ADDITIONAL OPERATIONS */
@@ -231,16 +270,34 @@ public class Song implements Comparable<Song> {
 
 	/**
 	 * The words that should not be considered keywords when performing a search.
-	 * Created by Stephen Lin; contact for questions.
+	 * Created by Stephen Lin; contact for questions. Package-private so Benchmark
+	 * can compare against the list search removeWords used to do
 	 */
-	private static final ArrayList<String> REMOVED_WORDS = new ArrayList<>(Arrays.asList("a", "am", "and", "as", "at",
+	static final ArrayList<String> REMOVED_WORDS = new ArrayList<>(Arrays.asList("a", "am", "and", "as", "at",
 			"by", "but", "for", "i", "id", "if", "ill", "im", "in", "is", "it", "its", "ive", "me", "my", "ooh", "of",
 			"oh", "on", "or", "so", "the", "that", "they've", "to", "too", "us", "we", "we're", "ya", "yeah", "you",
 			"you'll", "you're", "you've", "your", "was", "were", "they", "you'd"));
 
+	/**
+	 * Lowercases, strips punctuation and drops REMOVED_WORDS, which are kept as a
+	 * trie so tokens can be checked straight from a char buffer
+	 */
+	private static final Analyzer DEFAULT_ANALYZER = new Analyzer(new CharTrie(REMOVED_WORDS));
+
+	/**
+	 * Returns the analyzer removeWords uses, which a SearchEngine starts with
+	 * 
+	 * @return the default Analyzer
+	 */
+	public static Analyzer getDefaultAnalyzer() {
+		return DEFAULT_ANALYZER;
+	}
+
 	/**
 	 * Takes a string of input and removes the words matching
 	 * ImportSongs.REMOVED_WORDS. Created by Stephen Lin; contact for questions.
+	 * Punctuation is removed and letters are lowercased in the same single pass
+	 * over the characters
 	 * 
 	 * @param input the String to modify
 	 * @return the modified String
@@ -249,27 +306,7 @@ public class Song implements Comparable<Song> {
 		if (input == null) {
 			return null;
 		}
-
-		input = input.replaceAll("[^a-zA-Z0-9\\s]", "").toLowerCase(); // remove all punctuation, case insensitive
-		ArrayList<String> words = new ArrayList<>(Arrays.asList(input.split("\\s+"))); // split the input into
-																						// individual pieces into an
-																						// arraylist
-
-		ArrayList<String> filteredWords = new ArrayList<>(); // arraylist to hold the valid words
-
-		for (String word : words) {
-			boolean shouldRemove = false;
-			for (String removed : REMOVED_WORDS) {
-				if (word.equals(removed)) {
-					shouldRemove = true;
-					break;
-				}
-			}
-			if (!shouldRemove) {
-				filteredWords.add(word);
-			}
-		}
-		return String.join(" ", filteredWords);
+		return DEFAULT_ANALYZER.filter(input);
 	}
 }
 
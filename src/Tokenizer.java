@@ -0,0 +1,198 @@
+/**
+ * Tokenizer.java
+ * CIS 22C, Final Project
+ */
+import java.util.Arrays;
+
+/**
+ * Splits text into keywords in a single pass over its characters, applying an
+ * Analyzer's chain to each word as it is read. Whitespace separates words;
+ * with the usual chain, as in Song.removeWords, ASCII letters are lowercased,
+ * digits are kept, every other character is dropped (so "don't" becomes
+ * "dont"), and stop words are skipped. Each word is built in a reusable
+ * buffer, read with next() or handed to a Consumer, so tokenizing allocates
+ * nothing once the buffer has grown to the longest word. A Tokenizer is not
+ * thread-safe; use one per thread.
+ */
+public class Tokenizer {
+	/**
+	 * Receives the words of a text one at a time
+	 */
+	public interface Consumer {
+		/**
+		 * Handles one word; the buffer is reused for the next word, so it must be
+		 * copied if it is kept
+		 * 
+		 * @param chars  the buffer holding the word, starting at index 0
+		 * @param length the length of the word
+		 */
+		void accept(char[] chars, int length);
+	}
+
+	/**
+	 * The chain applied to each word
+	 */
+	private final Analyzer analyzer;
+	/**
+	 * The words to skip
+	 */
+	private final CharTrie stopWords;
+	/**
+	 * Holds the current word
+	 */
+	private char[] buffer;
+	/**
+	 * The length of the current word
+	 */
+	private int length;
+	/**
+	 * The text being split
+	 */
+	private CharSequence text;
+	/**
+	 * The index of the next character of text to read
+	 */
+	private int index;
+
+	/* Constructors */
+	/**
+	 * Constructor that takes in the chain to apply
+	 * 
+	 * @param analyzer the analyzer
+	 */
+	public Tokenizer(Analyzer analyzer) {
+		this.analyzer = analyzer;
+		this.stopWords = analyzer.getStopWords();
+		this.buffer = new char[32];
+		this.length = 0;
+		this.text = "";
+		this.index = 0;
+	}
+
+	/* Accessors */
+	/**
+	 * Returns the buffer holding the current word; it is overwritten by next()
+	 * 
+	 * @return the buffer, with the word starting at index 0
+	 */
+	public char[] getChars() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the length of the current word
+	 * 
+	 * @return the number of characters of the word in getChars()
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the current word as a String
+	 * 
+	 * @return a new String of the word
+	 */
+	public String getWord() {
+		return new String(buffer, 0, length);
+	}
+
+	/* Mutators */
+	/**
+	 * Starts splitting a new text
+	 * 
+	 * @param text the text to split
+	 */
+	public void reset(CharSequence text) {
+		this.text = text;
+		this.index = 0;
+		this.length = 0;
+	}
+
+	/**
+	 * Reads the next keyword of the text into the buffer
+	 * 
+	 * @return false if there are no more keywords
+	 */
+	public boolean next() {
+		length = 0;
+		int n = text.length();
+		while (index <= n) {
+			char c = index < n ? text.charAt(index) : ' ';
+			index++;
+			if (isWhitespace(c)) {
+				if (length > 0 && !stopWords.contains(buffer, 0, length)) {
+					if (analyzer.isStem()) {
+						length = Analyzer.stem(buffer, length);
+					}
+					return true;
+				}
+				length = 0;
+			} else if (c >= 'A' && c <= 'Z' && analyzer.isLowercase()) {
+				append((char) (c + ('a' - 'A')));
+			} else if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+					|| !analyzer.isStripPunctuation()) {
+				append(c);
+			}
+		}
+		return false;
+	}
+
+	/* Additional Methods */
+	/**
+	 * Passes each keyword of a text to a consumer, in order
+	 * 
+	 * @param text     the text to split
+	 * @param consumer receives each keyword
+	 * @return the number of keywords
+	 */
+	public int tokenize(CharSequence text, Consumer consumer) {
+		reset(text);
+		int count = 0;
+		while (next()) {
+			consumer.accept(buffer, length);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the keywords of a text separated by single spaces
+	 * 
+	 * @param text the text to filter
+	 * @return the keywords
+	 */
+	public String filter(String text) {
+		StringBuilder result = new StringBuilder(text.length());
+		tokenize(text, (chars, length) -> {
+			if (result.length() > 0) {
+				result.append(' ');
+			}
+			result.append(chars, 0, length);
+		});
+		return result.toString();
+	}
+
+	/**
+	 * Adds a character to the word being read, doubling the buffer when full
+	 * 
+	 * @param c the character to add
+	 */
+	private void append(char c) {
+		if (length == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		buffer[length++] = c;
+	}
+
+	/**
+	 * Checks if a character separates words, matching \s in a regex
+	 * 
+	 * @param c the character
+	 * @return if it is a space, tab, newline, vertical tab, form feed or carriage
+	 *         return
+	 */
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+}
@@ -4,11 +4,10 @@
  * @author Jeses Louis
  * CIS 22C, Final Project
  */
-import java.util.Objects;
-
 /**
- * Maps a lowercase word to a unique integer ID for inverted indexing. Equality
- * and hashcode are based only on the word (case-insensitive).
+ * Maps a word to a unique integer ID for inverted indexing. Equality and
+ * hashcode are based only on the word, case included; the Analyzer decides
+ * whether words are lowercased.
  */
 public class WordID {
 	/**
@@ -27,7 +26,7 @@ public class WordID {
 	 * @param id   the id to set the object to
 	 */
 	public WordID(String word, int id) {
-		this.word = word.toLowerCase();
+		this.word = word;
 		this.id = id;
 	}
 
@@ -61,7 +60,7 @@ public class WordID {
 			return true;
 		if (!(o instanceof WordID))
 			return false;
-		return word.equalsIgnoreCase(((WordID) o).word);
+		return word.equals(((WordID) o).word);
 	}
 
 	/**
@@ -71,7 +70,7 @@ public class WordID {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(word.toLowerCase());
+		return 31 + word.hashCode(); // Objects.hash(word), without the varargs array
 	}
 
 	/**
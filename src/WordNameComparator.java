@@ -0,0 +1,26 @@
+/**
+ * WordNameComparator.java
+ * CIS 22C, Final Project
+ */
+import java.util.Comparator;
+
+/**
+ * A comparator that compares WordID objects based on their words.
+ */
+public class WordNameComparator implements Comparator<WordID> {
+
+	/**
+	 * Compares two WordID objects by their words.
+	 *
+	 * @param o1 the first WordID to be compared
+	 * @param o2 the second WordID to be compared
+	 * @return a negative integer if o1's word comes before o2's word, zero if the
+	 *         words are equal, or a positive integer if o1's word comes after
+	 *         o2's word
+	 */
+	@Override
+	public int compare(WordID o1, WordID o2) {
+		return o1.getWord().compareTo(o2.getWord());
+	}
+
+}